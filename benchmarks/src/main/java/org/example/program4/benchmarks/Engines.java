@@ -0,0 +1,84 @@
+package org.example.program4.benchmarks;
+
+import org.example.program4.engine.BitboardForest;
+import org.example.program4.engine.ChunkedForest;
+import org.example.program4.engine.EventForest;
+import org.example.program4.engine.Forest;
+import org.example.program4.engine.FrontierForest;
+import org.example.program4.engine.MappedForest;
+import org.example.program4.engine.PackedForest;
+import org.example.program4.engine.ParallelForest;
+import org.example.program4.engine.SimulationEngine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Creates the engines compared by the benchmarks by name, so each engine can be a value of a JMH parameter.
+ */
+final class Engines {
+
+    private Engines() {
+    }
+
+    /**
+     * Creates an engine with the fire started in the center of the forest.
+     *
+     * @param name          the name of the engine class
+     * @param gridSize      the size of the grid that represents the forest
+     * @param probability   the initial probability of the fire spreading to an adjacent cell
+     * @param windDirection the direction of the wind
+     * @param seed          the seed that every random number is derived from
+     * @return the engine, which must be passed to {@link #close} once it is no longer used
+     * @throws UncheckedIOException if the file of a MappedForest cannot be created
+     */
+    static SimulationEngine create(String name, int gridSize, double probability,
+                                   Forest.WindDirection windDirection, long seed) {
+        SimulationEngine engine = switch (name) {
+            case "Forest" -> new Forest(gridSize, seed);
+            case "PackedForest" -> new PackedForest(gridSize, seed);
+            case "FrontierForest" -> new FrontierForest(gridSize, seed);
+            case "BitboardForest" -> new BitboardForest(gridSize, seed);
+            case "ParallelForest" -> new ParallelForest(gridSize, seed);
+            case "ChunkedForest" -> new ChunkedForest(gridSize, seed);
+            case "MappedForest" -> createMapped(gridSize, seed);
+            case "EventForest" -> new EventForest(gridSize, gridSize, seed);
+            default -> throw new IllegalArgumentException("Unknown engine: " + name);
+        };
+        engine.setSpreadParameters(probability, windDirection);
+        engine.startFire(gridSize / 2, gridSize / 2);
+        return engine;
+    }
+
+    /**
+     * Creates a MappedForest whose cells are stored in a temporary file.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     * @param seed     the seed that every random number is derived from
+     * @return the forest
+     * @throws UncheckedIOException if the temporary file cannot be created
+     */
+    private static MappedForest createMapped(int gridSize, long seed) {
+        try {
+            return new MappedForest(gridSize, gridSize, seed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Releases the resources of an engine, such as the temporary file of a MappedForest.
+     *
+     * @param engine the engine, or null if none was created
+     * @throws UncheckedIOException if the resources cannot be released
+     */
+    static void close(SimulationEngine engine) {
+        if (engine instanceof MappedForest mapped) {
+            try {
+                mapped.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
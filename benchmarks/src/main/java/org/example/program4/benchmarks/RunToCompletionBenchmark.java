@@ -0,0 +1,146 @@
+package org.example.program4.benchmarks;
+
+import org.example.program4.engine.Forest;
+import org.example.program4.engine.SimulationEngine;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the average time of a whole simulation, from the fire starting in the center until it goes out.
+ * Every invocation burns a batch of new forests with new seeds; creating the forests is not measured.
+ * Below the critical probability a small fire goes out within microseconds, less than the setup and timing
+ * of an invocation take, so the batch holds as many forests as fit in about {@value #BATCH_CELLS} cells,
+ * up to {@value #MAX_BATCH_RUNS}. The runs counter reports the time of a single run; the primary score is
+ * the time of a whole batch.
+ * The largest grid is left out because a full-grid engine takes minutes per run at that size,
+ * use {@link StepBenchmark} to compare the engines there.
+ * <p>
+ * Run with {@code -prof gc} to also get the allocation rate and the bytes allocated per run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RunToCompletionBenchmark {
+
+    /**
+     * The number of cells the forests of a batch should have in total.
+     */
+    private static final long BATCH_CELLS = 1 << 22;
+
+    /**
+     * The largest number of forests in a batch, which also bounds the temporary files of MappedForest held at once.
+     */
+    private static final int MAX_BATCH_RUNS = 256;
+
+    /**
+     * The size of the grid that represents the forest.
+     */
+    @Param({"11", "128", "1024"})
+    public int gridSize;
+
+    /**
+     * The initial probability of the fire spreading to an adjacent cell.
+     */
+    @Param({"0.3", "0.6"})
+    public double probability;
+
+    /**
+     * The direction of the wind.
+     */
+    @Param({"NORTH", "EAST"})
+    public Forest.WindDirection windDirection;
+
+    /**
+     * The name of the engine being measured.
+     */
+    @Param({"Forest", "PackedForest", "FrontierForest", "BitboardForest", "ParallelForest",
+            "ChunkedForest", "MappedForest", "EventForest"})
+    public String engineName;
+
+    /**
+     * The forests burned by the next invocation.
+     */
+    private SimulationEngine[] engines;
+
+    /**
+     * The seed of the next forest.
+     */
+    private long seed;
+
+    /**
+     * The number of runs measured, reported by JMH as the time per run.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RunCounter {
+
+        /**
+         * The number of runs.
+         */
+        public long runs;
+
+        /**
+         * Clears the counter before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            runs = 0;
+        }
+    }
+
+    /**
+     * Creates a batch of forests with the fire started before each invocation.
+     */
+    @Setup(Level.Invocation)
+    public void createForests() {
+        long runs = Math.max(1, Math.min(MAX_BATCH_RUNS, BATCH_CELLS / ((long) gridSize * gridSize)));
+        engines = new SimulationEngine[(int) runs];
+        for (int k = 0; k < engines.length; k++) {
+            engines[k] = Engines.create(engineName, gridSize, probability, windDirection, seed++);
+        }
+    }
+
+    /**
+     * Releases the forests after each invocation.
+     */
+    @TearDown(Level.Invocation)
+    public void closeForests() {
+        for (SimulationEngine engine : engines) {
+            Engines.close(engine);
+        }
+        engines = null;
+    }
+
+    /**
+     * Runs the simulation of every forest of the batch until the fire has gone out.
+     *
+     * @param counter the counter of runs
+     * @return the total number of simulation cycles, so the runs are not optimised away
+     */
+    @Benchmark
+    public int runToCompletion(RunCounter counter) {
+        int cycles = 0;
+        for (SimulationEngine engine : engines) {
+            cycles += engine.runToCompletion();
+        }
+        counter.runs += engines.length;
+        return cycles;
+    }
+}
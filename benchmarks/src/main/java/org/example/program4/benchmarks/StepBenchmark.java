@@ -0,0 +1,164 @@
+package org.example.program4.benchmarks;
+
+import org.example.program4.engine.Forest;
+import org.example.program4.engine.ForestCell;
+import org.example.program4.engine.SimulationEngine;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a single simulation cycle of each engine.
+ * The forest is first burned for a quarter of its size in cycles so the fire is spreading when the measurement starts.
+ * When the fire goes out, it is started again in an untouched cell of the same forest, which costs no more than
+ * a single ignition; only once hardly any untouched cells are left is a new forest created, which is rare enough
+ * not to weigh on the score. The forest is never replaced per invocation, since the setup and timing of
+ * a single invocation take longer than a step of a small fire.
+ * <p>
+ * Besides steps per second, the cells counter reports the grid cells covered per second.
+ * Run with {@code -prof gc} to also get the allocation rate and the bytes allocated per step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class StepBenchmark {
+
+    /**
+     * The number of random cells tried when starting the fire again before a new forest is created.
+     */
+    private static final int RESTART_ATTEMPTS = 16;
+
+    /**
+     * The size of the grid that represents the forest.
+     */
+    @Param({"11", "128", "1024", "8192"})
+    public int gridSize;
+
+    /**
+     * The initial probability of the fire spreading to an adjacent cell.
+     */
+    @Param({"0.3", "0.6"})
+    public double probability;
+
+    /**
+     * The direction of the wind.
+     */
+    @Param({"NORTH", "EAST"})
+    public Forest.WindDirection windDirection;
+
+    /**
+     * The name of the engine being measured.
+     */
+    @Param({"Forest", "PackedForest", "FrontierForest", "BitboardForest", "ParallelForest",
+            "ChunkedForest", "MappedForest", "EventForest"})
+    public String engineName;
+
+    /**
+     * The engine being measured.
+     */
+    private SimulationEngine engine;
+
+    /**
+     * The seed of the next forest.
+     */
+    private long seed;
+
+    /**
+     * Chooses the cells the fire is started again in once it has gone out.
+     */
+    private final SplittableRandom random = new SplittableRandom(0);
+
+    /**
+     * The number of cells covered by the measured steps, reported by JMH as cells per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class CellCounter {
+
+        /**
+         * The number of cells covered.
+         */
+        public long cells;
+
+        /**
+         * Clears the counter before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            cells = 0;
+        }
+    }
+
+    /**
+     * Creates a forest with a spreading fire before each iteration.
+     */
+    @Setup(Level.Iteration)
+    public void createForest() {
+        Engines.close(engine);
+        engine = Engines.create(engineName, gridSize, probability, windDirection, seed++);
+        for (int cycle = 0; cycle < gridSize / 4 && engine.step(); cycle++) {
+            // Let the fire spread before measuring
+        }
+    }
+
+    /**
+     * Releases the forest after each iteration.
+     */
+    @TearDown(Level.Iteration)
+    public void closeForest() {
+        Engines.close(engine);
+        engine = null;
+    }
+
+    /**
+     * Runs one simulation cycle.
+     *
+     * @param counter the counter of covered cells
+     * @return whether the fire is still burning, so the step is not optimised away
+     */
+    @Benchmark
+    public boolean step(CellCounter counter) {
+        counter.cells += (long) gridSize * gridSize;
+        if (engine.step()) {
+            return true;
+        }
+        restartFire();
+        return false;
+    }
+
+    /**
+     * Starts the fire again in a random untouched cell of the forest, or creates a new forest if no untouched cell
+     * is found within a few attempts. Kept out of the measured step so it does not weigh on its compilation.
+     */
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    private void restartFire() {
+        for (int attempt = 0; attempt < RESTART_ATTEMPTS; attempt++) {
+            int i = random.nextInt(gridSize);
+            int j = random.nextInt(gridSize);
+            if (engine.getState(i, j) == ForestCell.State.UNTOUCHED) {
+                engine.startFire(i, j);
+                return;
+            }
+        }
+        Engines.close(engine);
+        engine = Engines.create(engineName, gridSize, probability, windDirection, seed++);
+    }
+}
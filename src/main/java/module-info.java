@@ -1,8 +1,15 @@
 module org.example.program {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.jfr;
+    requires jdk.management;
+    requires static jdk.incubator.vector;
 
 
     opens org.example.program4 to javafx.fxml;
     exports org.example.program4;
+    exports org.example.program4.engine;
+    exports org.example.program4.batch;
+    exports org.example.program4.replay;
+    exports org.example.program4.metrics;
 }
\ No newline at end of file
@@ -0,0 +1,248 @@
+package org.example.program4;
+
+import org.example.program4.batch.RunRecord;
+import org.example.program4.batch.RunResultWriter;
+import org.example.program4.batch.Scenario;
+import org.example.program4.engine.Forest;
+import org.example.program4.engine.ForestCell;
+import org.example.program4.engine.FuelMap;
+import org.example.program4.engine.MappedForest;
+import org.example.program4.engine.SimulationEngine;
+import org.example.program4.engine.SpreadController;
+import org.example.program4.engine.SpreadKernel;
+import org.example.program4.engine.SpreadSchedule;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * The headless counterpart of {@link ForestFireSimulator}: runs a scenario many times without a display and streams
+ * one row per run, with the cycles it took for the fire to go out, the number of burned cells and the largest number
+ * of cells burning at once, to standard output or a file.
+ * <p>
+ * The options are given as {@code --name=value}, like the options of the GUI:
+ * <ul>
+ *     <li>{@code --rows=} and {@code --columns=}: the size of the forest, 11 x 11 by default, or the size of the fuel map;
+ *     a forest with more than {@link Integer#MAX_VALUE} cells is stored in a temporary file, see {@link MappedForest};</li>
+ *     <li>{@code --probability=}: the fire probability, 0.3 by default;</li>
+ *     <li>{@code --wind=}: the wind direction, NORTH by default;</li>
+ *     <li>{@code --schedule=}: changes of the probability and wind during each run, such as
+ *     {@code "40 wind=EAST; 60 probability=0.5"}, see {@link SpreadSchedule};</li>
+ *     <li>{@code --fuel=}: a PGM image or fuel map with the fuel of every cell, see {@link FuelMap};</li>
+ *     <li>{@code --seed=}: the seed the seeds of the runs are derived from, 0 by default;</li>
+ *     <li>{@code --runs=}: the number of runs, 1 by default;</li>
+ *     <li>{@code --first-run=}: the number of the first run, 0 by default, so several machines can share the runs of one seed;</li>
+ *     <li>{@code --format=}: {@code csv} or {@code binary}, see {@link RunResultWriter};</li>
+ *     <li>{@code --output=}: the file to write to instead of standard output;</li>
+ *     <li>{@code --threads=}: the number of runs simulated in parallel, one per core by default.</li>
+ * </ul>
+ * The runs are simulated in parallel, so the rows are written in the order the runs finish; the run number of each row
+ * tells them apart.
+ */
+public class ForestFireBatch {
+
+    /**
+     * The exit status for invalid options.
+     */
+    private static final int USAGE_ERROR = 2;
+
+    /**
+     * The exit status when the results cannot be written, for example because the reader of a pipe has gone away.
+     */
+    private static final int OUTPUT_ERROR = 1;
+
+    /**
+     * The usage message printed for invalid options.
+     */
+    private static final String USAGE = "Usage: ForestFireBatch [--rows=N] [--columns=N] [--probability=P] [--wind=NORTH|SOUTH|EAST|WEST]"
+            + " [--schedule=SCRIPT] [--fuel=FILE] [--seed=S] [--runs=N] [--first-run=N] [--format=csv|binary] [--output=FILE] [--threads=N]";
+
+    /**
+     * The names of the options.
+     */
+    private static final Set<String> OPTION_NAMES = Set.of("rows", "columns", "probability", "wind", "schedule", "fuel", "seed", "runs",
+            "first-run", "format", "output", "threads");
+
+    /**
+     * Not instantiable.
+     */
+    private ForestFireBatch() {
+    }
+
+    /**
+     * The main method that runs the batch.
+     *
+     * @param args the command-line options
+     * @throws InterruptedException if the runs are interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options;
+        Scenario scenario;
+        SpreadSchedule schedule;
+        long firstRun;
+        long runs;
+        RunResultWriter.Format format;
+        int threads;
+        try {
+            options = parseOptions(args);
+            String fuel = options.get("fuel");
+            FuelMap fuelMap = fuel == null ? null : FuelMap.load(Path.of(fuel));
+            int rows = Integer.parseInt(options.getOrDefault("rows", fuelMap == null ? "11" : String.valueOf(fuelMap.getRows())));
+            int columns = Integer.parseInt(options.getOrDefault("columns", fuelMap == null ? "11" : String.valueOf(fuelMap.getColumns())));
+            if (rows <= 0 || columns <= 0) {
+                throw new IllegalArgumentException("The forest must have at least one row and one column: " + rows + " x " + columns);
+            }
+            double probability = Double.parseDouble(options.getOrDefault("probability", "0.3"));
+            if (!(probability >= 0 && probability <= 1)) {
+                throw new IllegalArgumentException("The probability must be between 0 and 1: " + probability);
+            }
+            Forest.WindDirection windDirection = Forest.WindDirection.valueOf(options.getOrDefault("wind", "NORTH").toUpperCase());
+            schedule = SpreadSchedule.parse(options.getOrDefault("schedule", ""));
+            long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+            if (fuelMap != null && (fuelMap.getRows() != rows || fuelMap.getColumns() != columns)) {
+                throw new IllegalArgumentException("The fuel map has " + fuelMap.getRows() + " x " + fuelMap.getColumns()
+                        + " cells but the forest has " + rows + " x " + columns);
+            }
+            scenario = Scenario.centered(rows, columns, probability, windDirection, seed).withFuelMap(fuelMap);
+            firstRun = Long.parseLong(options.getOrDefault("first-run", "0"));
+            runs = Long.parseLong(options.getOrDefault("runs", "1"));
+            format = RunResultWriter.Format.valueOf(options.getOrDefault("format", "csv").toUpperCase());
+            threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+            if (runs < 0 || firstRun < 0 || threads <= 0) {
+                throw new IllegalArgumentException("The runs, the first run and the threads must not be negative");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(USAGE_ERROR);
+            return;
+        } catch (IOException e) {
+            System.err.println("The fuel map cannot be loaded: " + e.getMessage());
+            System.exit(USAGE_ERROR);
+            return;
+        }
+
+        String output = options.get("output");
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (WritableByteChannel channel = output == null
+                ? Channels.newChannel(new FileOutputStream(FileDescriptor.out))
+                : FileChannel.open(Path.of(output), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             RunResultWriter writer = new RunResultWriter(channel, format)) {
+            pool.submit(() -> LongStream.range(firstRun, firstRun + runs).parallel().forEach(run -> {
+                try {
+                    writer.write(runOnce(scenario, schedule, run));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })).get();
+        } catch (IOException e) {
+            System.err.println("The results cannot be written: " + e.getMessage());
+            System.exit(OUTPUT_ERROR);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                System.err.println("The results cannot be written: " + io.getCause().getMessage());
+                System.exit(OUTPUT_ERROR);
+            }
+            // Pass on the failure of a run as if it had happened on this thread
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Simulates one run of the scenario until the fire goes out, changing the spread parameters as scheduled.
+     *
+     * @param scenario the scenario
+     * @param schedule the changes of the spread parameters during the run
+     * @param run      the number of the run
+     * @return the result of the run
+     */
+    static RunRecord runOnce(Scenario scenario, SpreadSchedule schedule, long run) {
+        SimulationEngine engine = scenario.createEngine(run);
+        try {
+            // No change has been made yet, so a change at the cycle the fire was started in is made before the first step
+            SpreadController spreadController = new SpreadController(
+                    new SpreadKernel(scenario.probability(), scenario.windDirection()), schedule, 0);
+            long maxFrontier = engine.getBurningCount();
+            spreadController.beforeStep(engine);
+            while (engine.step()) {
+                maxFrontier = Math.max(maxFrontier, engine.getBurningCount());
+                spreadController.beforeStep(engine);
+            }
+            return new RunRecord(run, scenario.getRunSeed(run), engine.getSimulationCycles(), countBurnedCells(engine), maxFrontier);
+        } finally {
+            if (engine instanceof MappedForest mapped) {
+                // Delete the temporary file the cells of a large forest are stored in
+                try {
+                    mapped.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the cells the fire reached, which are no longer untouched.
+     * The count kept by the engine is used if there is one, otherwise every cell is checked.
+     *
+     * @param engine the engine
+     * @return the number of cells that are burning or scorched
+     */
+    static long countBurnedCells(SimulationEngine engine) {
+        long cells = (long) engine.getRows() * engine.getColumns();
+        long untouched = engine.getStateCount(ForestCell.State.UNTOUCHED);
+        if (untouched >= 0) {
+            return cells - untouched;
+        }
+        long burnedCells = 0;
+        for (int i = 0; i < engine.getRows(); i++) {
+            for (int j = 0; j < engine.getColumns(); j++) {
+                if (engine.getState(i, j) != ForestCell.State.UNTOUCHED) {
+                    burnedCells++;
+                }
+            }
+        }
+        return burnedCells;
+    }
+
+    /**
+     * Reads options given as {@code --name=value}.
+     *
+     * @param args the command-line options
+     * @return the value of each option by name
+     * @throws IllegalArgumentException if an option is unknown or not given as {@code --name=value}
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            if (!OPTION_NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            options.put(name, arg.substring(equals + 1));
+        }
+        return options;
+    }
+}
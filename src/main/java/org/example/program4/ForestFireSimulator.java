@@ -31,11 +31,11 @@ package org.example.program4;
 //              For example, if the general probability of burning is 30% and the wind is from the north, then the simulation probability for burning should be north (up) 20%, east (right) 30%, south (down) 40%, and west (30%).
 //                  Be sure that the wind adjustment does not push the probability number for a direction outside the 0.0...1.0 range.
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
@@ -44,7 +44,25 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.stage.Stage;
-import javafx.util.Duration;
+import org.example.program4.engine.CellChanges;
+import org.example.program4.engine.Checkpoint;
+import org.example.program4.engine.EventForest;
+import org.example.program4.engine.Forest;
+import org.example.program4.engine.ForestCell;
+import org.example.program4.engine.FrontierForest;
+import org.example.program4.engine.SimulationEngine;
+import org.example.program4.engine.SpreadController;
+import org.example.program4.engine.SpreadKernel;
+import org.example.program4.engine.SpreadSchedule;
+import org.example.program4.replay.EventLog;
+import org.example.program4.replay.ReplayForest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
 
 /**
@@ -52,25 +70,71 @@ import javafx.util.Duration;
  * The application uses a grid to represent the forest, where each cell can be in one of three states: untouched, burning, or burned.
  * The fire starts in the center of the grid and can spread to adjacent cells based on a probability and the direction of the wind.
  * The application provides a GUI for the user to set the fire probability and the wind direction, and to start and reset the simulation.
+ * The simulation itself is run by a {@link SimulationEngine}; this class is only a view over it.
+ * The GUI uses a {@link FrontierForest}, so each cycle only visits the cells that are burning, or an
+ * {@link EventForest} simulated in continuous time when the application is launched with {@code --engine=event},
+ * which cannot be combined with {@code --checkpoint=}.
+ * <p>
+ * Small forests are drawn as a grid pane of rectangles. Large forests, or any forest when the application is
+ * launched with {@code --renderer=image}, are drawn into an image with one pixel per cell by a {@link ForestImageView}.
+ * Either way, only the cells the engine reports as changed are repainted after each cycle.
+ * <p>
+ * The forest is 11 x 11 cells unless the application is launched with {@code --rows=} and {@code --columns=}.
+ * <p>
+ * The forest is stepped on its own thread by a {@link SimulationLoop} at the speed chosen in the GUI.
+ * An animation timer draws the latest generation once per frame, skipping the generations in between
+ * when the simulation runs faster than the screen refreshes.
+ * <p>
+ * Launched with {@code --replay=} and the path of an event log written by an
+ * {@link org.example.program4.replay.EventLogWriter}, the application plays the recorded run back instead, with a
+ * slider to jump to any simulation cycle.
+ * <p>
+ * Launched with {@code --checkpoint=} and the path of a file, the simulation is saved to that file as a
+ * {@link Checkpoint} whenever it is paused. If the file already exists when the application is launched,
+ * the simulation is restored from it, so it can be resumed after the application is closed.
+ * <p>
+ * The fire probability and the wind direction can be changed while the simulation is running and are used from
+ * the next cycle. Launched with {@code --schedule=} and a {@link SpreadSchedule} script such as
+ * {@code "40 wind=EAST; 60 probability=0.5"}, they also change by themselves at the given cycles.
  */
 public class ForestFireSimulator extends Application {
 
     /**
-     * The size of the grid that represents the forest.
+     * The number of rows and columns of the forest unless they are given on the command line.
      */
-    private static final int GRID_SIZE = 11;
+    private static final int DEFAULT_GRID_SIZE = 11;
+    /**
+     * The largest number of rows or columns that is drawn with rectangles by default. Larger forests are drawn into an image.
+     */
+    private static final int MAX_RECTANGLE_GRID_SIZE = 100;
+    /**
+     * The number of rows of the grid that represents the forest.
+     */
+    private int rows = DEFAULT_GRID_SIZE;
+    /**
+     * The number of columns of the grid that represents the forest.
+     */
+    private int columns = DEFAULT_GRID_SIZE;
+    /**
+     * The width and height of the image that represents the forest in the GUI.
+     */
+    private static final double IMAGE_DISPLAY_SIZE = 800;
     /**
      * A 2D array of rectangles representing the cells in the forest grid.
      */
-    private final ForestCell[][] forestGrid = new ForestCell[GRID_SIZE][GRID_SIZE];
+    private Rectangle[][] rectangles;
     /**
-     * The grid pane that represents the forest in the GUI.
+     * The grid pane that represents the forest in the GUI, or null if the forest is drawn into an image.
      */
     private GridPane gridPane;
+    /**
+     * The image that represents the forest in the GUI, or null if the forest is drawn with rectangles.
+     */
+    private ForestImageView forestImage;
     /**
      * The forest that is being simulated.
      */
-    private Forest forest = new Forest(GRID_SIZE, forestGrid);
+    private SimulationEngine forest;
 
     /**
      * The scene of the application.
@@ -82,6 +146,11 @@ public class ForestFireSimulator extends Application {
      */
     private Label simulationCyclesLabel;
 
+    /**
+     * The label that displays the number of untouched, burning and scorched cells.
+     */
+    private Label cellCountsLabel;
+
     /**
      * The number of simulation cycles.
      */
@@ -93,14 +162,29 @@ public class ForestFireSimulator extends Application {
     private Label countdownLabel;
 
     /**
-     * The timeline that controls the simulation.
+     * The speeds the simulation can run at, in simulation cycles per second. 0 runs as fast as possible.
+     */
+    private static final double[] SPEEDS = {0.2, 1, 10, 60, 0};
+
+    /**
+     * The names of the speeds shown in the GUI, in the same order as {@link #SPEEDS}.
+     */
+    private static final String[] SPEED_NAMES = {"Every 5 seconds", "1 per second", "10 per second", "60 per second", "As fast as possible"};
+
+    /**
+     * The combo box that controls the speed of the simulation.
+     */
+    private ComboBox<String> speedComboBox;
+
+    /**
+     * The loop that steps the forest on its own thread, or null if the fire has not been started.
      */
-    private Timeline timeline;
+    private SimulationLoop simulationLoop;
 
     /**
-     * The timeline that controls the countdown.
+     * The timer that draws the latest generation of the forest once per frame.
      */
-    private Timeline countdownTimeline;
+    private AnimationTimer frameTimer;
 
     /**
      * The start button for the simulation.
@@ -117,13 +201,68 @@ public class ForestFireSimulator extends Application {
      */
     private Button resetButton;
 
+    /**
+     * The recorded run that is played back, or null if the forest is simulated.
+     */
+    private ReplayForest replay;
+
+    /**
+     * The slider that jumps to a simulation cycle of the recorded run, or null if the forest is simulated.
+     */
+    private Slider seekSlider;
+
+    /**
+     * Whether the seek slider is being moved to follow the replay rather than by the user.
+     */
+    private boolean followingReplay;
+
+    /**
+     * The file the simulation is saved to whenever it is paused, or null if it is not saved.
+     */
+    private Path checkpointFile;
+
+    /**
+     * The checkpoint the forest was restored from when the application was launched, or null if it was not restored.
+     */
+    private Checkpoint restoredCheckpoint;
+
+    /**
+     * The changes of the spread parameters planned for later cycles.
+     */
+    private SpreadSchedule spreadSchedule = SpreadSchedule.NONE;
+
+    /**
+     * The controller that hands changes of the spread parameters to the simulation thread, or null if the fire has not been started.
+     */
+    private SpreadController spreadController;
+
+    /**
+     * The number of scheduled changes shown by the slider and the combo box, to notice when the schedule makes another.
+     */
+    private int shownScheduledChanges;
+
+    /**
+     * Whether the slider and the combo box are being changed to follow the schedule rather than by the user.
+     */
+    private boolean followingSchedule;
+
+    /**
+     * The slider that controls the fire probability.
+     */
+    private Slider probabilitySlider;
+
+    /**
+     * The combo box that controls the wind direction.
+     */
+    private ComboBox<String> windDirectionComboBox;
+
     /**
      * The main method that launches the application.
      *
      * @param args the command-line arguments
      */
     public static void main(String[] args) {
-        launch();
+        launch(args);
     }
 
     /**
@@ -131,13 +270,53 @@ public class ForestFireSimulator extends Application {
      * It creates the GUI for the forest fire simulator and shows the stage.
      *
      * @param stage the primary stage
+     * @throws IOException if the recorded run to play back or the checkpoint cannot be read
      */
     @Override
-    public void start(Stage stage) {
-        // Create the grid pane to represent the forest
-        this.gridPane = createForestGrid();
-        // Create the forest with the grid of cells
-        this.forest = new Forest(GRID_SIZE, forestGrid);
+    public void start(Stage stage) throws IOException {
+        String replayFile = getParameters().getNamed().get("replay");
+        String checkpointParameter = getParameters().getNamed().get("checkpoint");
+        String scheduleParameter = getParameters().getNamed().get("schedule");
+        if (scheduleParameter != null) {
+            this.spreadSchedule = SpreadSchedule.parse(scheduleParameter);
+        }
+        if (checkpointParameter != null) {
+            if ("event".equals(getParameters().getNamed().get("engine"))) {
+                throw new IllegalArgumentException("Checkpoints cannot be taken of an EventForest, so --engine=event cannot be used with --checkpoint");
+            }
+            this.checkpointFile = Path.of(checkpointParameter);
+        }
+        if (checkpointFile != null && replayFile == null && Files.exists(checkpointFile)) {
+            // Resume the saved simulation, which also decides the size of the forest
+            this.restoredCheckpoint = Checkpoint.read(checkpointFile);
+            this.rows = restoredCheckpoint.getRows();
+            this.columns = restoredCheckpoint.getColumns();
+        } else if (replayFile != null) {
+            // Play back the recorded run, which also decides the size of the forest
+            this.replay = new ReplayForest(EventLog.read(Path.of(replayFile)));
+            this.rows = replay.getRows();
+            this.columns = replay.getColumns();
+        } else {
+            // Read the size of the forest from the command line
+            this.rows = getSizeParameter("rows");
+            this.columns = getSizeParameter("columns");
+            if ((long) rows * columns > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The simulator can show at most " + Integer.MAX_VALUE + " cells, not " + rows + " x " + columns
+                        + "; larger forests can be run with ForestFireBatch");
+            }
+        }
+        // Draw large forests into an image, unless the renderer is chosen on the command line
+        String defaultRenderer = Math.max(rows, columns) > MAX_RECTANGLE_GRID_SIZE ? "image" : "rectangles";
+        String renderer = getParameters().getNamed().getOrDefault("renderer", defaultRenderer);
+        if (renderer.equals("image")) {
+            // Create the image to represent the forest
+            this.forestImage = new ForestImageView(rows, columns, IMAGE_DISPLAY_SIZE);
+        } else {
+            // Create the grid pane to represent the forest
+            this.gridPane = createForestGrid();
+        }
+        // Create the forest
+        this.forest = restoredCheckpoint != null ? restoredCheckpoint.restore() : createForest();
         // Create the GUI for the forest fire simulator
         createForestFireSimulatorGUI();
         // Set the title, scene, and show the stage
@@ -146,6 +325,42 @@ public class ForestFireSimulator extends Application {
         stage.show();
     }
 
+    /**
+     * Reads the number of rows or columns from a named command-line parameter such as {@code --rows=200}.
+     *
+     * @param name the name of the parameter
+     * @return the number of rows or columns, or the default grid size if the parameter is not given
+     * @throws IllegalArgumentException if the parameter is not a positive whole number
+     */
+    private int getSizeParameter(String name) {
+        String value = getParameters().getNamed().get(name);
+        if (value == null) {
+            return DEFAULT_GRID_SIZE;
+        }
+        int size = Integer.parseInt(value);
+        if (size <= 0) {
+            throw new IllegalArgumentException("The number of " + name + " must be positive: " + value);
+        }
+        return size;
+    }
+
+    /**
+     * Creates a new forest of the configured size where every cell is untouched.
+     * When a recorded run is played back, the replay is rewound to its first cycle instead.
+     *
+     * @return the forest
+     */
+    private SimulationEngine createForest() {
+        if (replay != null) {
+            replay.seek(replay.getLog().getFirstCycle());
+            return replay;
+        }
+        if ("event".equals(getParameters().getNamed().get("engine"))) {
+            return new EventForest(rows, columns, ThreadLocalRandom.current().nextLong());
+        }
+        return new FrontierForest(rows, columns, ThreadLocalRandom.current().nextLong());
+    }
+
     /**
      * Creates a VBox with a label and a slider to select the fire probability.
      *
@@ -199,6 +414,75 @@ public class ForestFireSimulator extends Application {
         return windDirectionBox;
     }
 
+    /**
+     * Creates a VBox with a label and a combo box to select the speed of the simulation.
+     * The speed can be changed while the simulation is running.
+     *
+     * @return the VBox with a label and a combo box
+     */
+    private VBox createSimulationSpeedBox() {
+        // Set the Title
+        Label title = new Label("Simulation Speed");
+        title.setPadding(new Insets(10));
+        // Create the ComboBox
+        speedComboBox = new ComboBox<>();
+        // Add the speeds to the combo box
+        speedComboBox.getItems().addAll(SPEED_NAMES);
+        // Set the default value to one cycle every 5 seconds
+        speedComboBox.setValue(SPEED_NAMES[0]);
+        // Set the tooltip
+        speedComboBox.setTooltip(new Tooltip("Set the number of simulation cycles per second"));
+        // Pass the new speed to the running simulation
+        speedComboBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (simulationLoop != null && newValue != null) {
+                simulationLoop.setTickInterval(getTickInterval());
+            }
+        });
+        // Create the VBox
+        VBox simulationSpeedBox = new VBox(title, speedComboBox);
+        // Set the spacing for the VBox
+        simulationSpeedBox.setSpacing(10);
+        return simulationSpeedBox;
+    }
+
+    /**
+     * Returns the time between two simulation cycles for the speed selected in the GUI.
+     *
+     * @return the time between two simulation cycles in nanoseconds
+     */
+    private long getTickInterval() {
+        int speed = speedComboBox.getItems().indexOf(speedComboBox.getValue());
+        return SimulationLoop.toTickInterval(SPEEDS[Math.max(speed, 0)]);
+    }
+
+    /**
+     * Creates a VBox with a label and a slider to jump to a simulation cycle of the recorded run.
+     *
+     * @return the VBox with a label and a slider
+     */
+    private VBox createReplayBox() {
+        EventLog log = replay.getLog();
+        // Set the Title
+        Label title = new Label("Replay Cycle");
+        title.setPadding(new Insets(10));
+        // Create the Slider over every recorded cycle
+        seekSlider = new Slider(log.getFirstCycle(), Math.max(log.getLastCycle(), log.getFirstCycle() + 1), log.getFirstCycle());
+        seekSlider.setMaxWidth(Double.MAX_VALUE);
+        seekSlider.setBlockIncrement(1);
+        // Set the Tooltip
+        seekSlider.setTooltip(new Tooltip("Jump to a simulation cycle of the recorded run"));
+        // Jump to the cycle the user moves the slider to
+        seekSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (!followingReplay) {
+                seekReplay((int) Math.round(newValue.doubleValue()));
+            }
+        });
+        // Create the VBox
+        VBox replayBox = new VBox(title, seekSlider);
+        replayBox.setSpacing(10);
+        return replayBox;
+    }
+
     /**
      * Creates a HBox with buttons to start, pause, stop, and reset the simulation.
      *
@@ -230,7 +514,8 @@ public class ForestFireSimulator extends Application {
     }
 
     /**
-     * Creates a VBox with labels to display the number of simulation cycles and the countdown to the next simulation cycle.
+     * Creates a VBox with labels to display the number of simulation cycles, the number of cells in each state
+     * and the countdown to the next simulation cycle.
      *
      * @return the VBox with labels
      */
@@ -238,11 +523,15 @@ public class ForestFireSimulator extends Application {
         // Create the Simulation cycles label
         simulationCyclesLabel = new Label("Simulation Cycles: 0");
 
+        // Create the cell counts label
+        cellCountsLabel = new Label();
+        showCellCounts(forest::getStateCount);
+
         // Create the Countdown label
         countdownLabel = new Label("Next cycle in: 5 seconds");
 
         // Create the VBox
-        VBox simulationCycleLabelsBox = new VBox(simulationCyclesLabel, countdownLabel);
+        VBox simulationCycleLabelsBox = new VBox(simulationCyclesLabel, cellCountsLabel, countdownLabel);
 
         // Set the spacing for the VBox
         simulationCycleLabelsBox.setSpacing(10);
@@ -259,10 +548,11 @@ public class ForestFireSimulator extends Application {
     private GridPane createForestGrid() {
         // Create the grid pane
         GridPane gridPane = new GridPane();
+        rectangles = new Rectangle[rows][columns];
 
         // Iterate over the grid and create a rectangle for each cell
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
                 // Create a rectangle for the cell and set the size to 40x40
                 Rectangle rectangle = new Rectangle(40, 40);
                 // Set the initial color of the cell to green
@@ -270,7 +560,7 @@ public class ForestFireSimulator extends Application {
                 // Add the rectangle to the grid pane
                 gridPane.add(rectangle, i, j);
                 // Add the rectangle to the 2D array of rectangles
-                forestGrid[i][j] = new ForestCell(rectangle);
+                rectangles[i][j] = rectangle;
             }
         }
 
@@ -293,17 +583,48 @@ public class ForestFireSimulator extends Application {
         // Create the wind direction box
         VBox windDirectionBox = createWindDirectionBox();
 
+        // Create the simulation speed box
+        VBox simulationSpeedBox = createSimulationSpeedBox();
+
+        // Get the controls for the fire probability and the wind direction
+        probabilitySlider = (Slider) fireProbabilityBox.getChildren().get(1);
+        windDirectionComboBox = (ComboBox<String>) windDirectionBox.getChildren().get(1);
+        // Hand changes to a running simulation, which uses them from the next cycle
+        probabilitySlider.valueProperty().addListener((observable, oldValue, newValue) -> publishSpreadParameters());
+        windDirectionComboBox.valueProperty().addListener((observable, oldValue, newValue) -> publishSpreadParameters());
+
         // Create the simulations hBox
-        HBox simulationButtonsBox = createSimulationButtonsBox(gridPane, (Slider) fireProbabilityBox.getChildren().get(1), (ComboBox<String>) windDirectionBox.getChildren().get(1));
+        HBox simulationButtonsBox = createSimulationButtonsBox(gridPane, probabilitySlider, windDirectionComboBox);
 
         // Create the simulation cycle labels box
         VBox simulationCycleLabelsBox = createSimulationCycleLabelsBox();
 
-        // Create the forest grid pane
-        GridPane forestGridPane = createForestGrid();
+        // The forest is shown either as the grid pane or as the image
+        Node forestView = forestImage != null ? forestImage.getView() : gridPane;
+
+        // Create the timer that draws the forest while the simulation is running
+        frameTimer = createFrameTimer();
 
         // Create the VBox for the GUI
-        VBox vbox = new VBox(fireProbabilityBox, new Separator(), windDirectionBox, new Separator(), simulationButtonsBox, new Separator(), simulationCycleLabelsBox, new Separator(), forestGridPane);
+        VBox vbox = new VBox(fireProbabilityBox, new Separator(), windDirectionBox, new Separator(), simulationSpeedBox, new Separator(), simulationButtonsBox, new Separator(), simulationCycleLabelsBox, new Separator(), forestView);
+
+        if (replay != null) {
+            // The spread of a recorded fire cannot be changed, but the replay can jump to any cycle
+            fireProbabilityBox.setDisable(true);
+            windDirectionBox.setDisable(true);
+            vbox.getChildren().add(vbox.getChildren().indexOf(simulationButtonsBox), createReplayBox());
+            vbox.getChildren().add(vbox.getChildren().indexOf(simulationButtonsBox), new Separator());
+            showReplayCycle();
+        }
+
+        if (restoredCheckpoint != null) {
+            // Show the spread parameters and the forest of the saved simulation
+            probabilitySlider.setValue(restoredCheckpoint.getProbability());
+            windDirectionComboBox.setValue(restoredCheckpoint.getWindDirection().name());
+            repaintGrid();
+            simulationCycles = forest.getSimulationCycles();
+            simulationCyclesLabel.setText("Simulation Cycles: " + simulationCycles);
+        }
 
         // Set the padding, spacing, alignment, and fill width for the VBox
         vbox.setSpacing(10);
@@ -317,202 +638,298 @@ public class ForestFireSimulator extends Application {
 
     /**
      * Updates the forest grid in the GUI based on the state of the forest.
+     * Only the cells that changed in the last simulation cycle are repainted.
      */
     private void updateGrid() {
-        // Get the grid of cells from the forest
-        ForestCell[][] grid = forest.getGrid();
+        CellChanges changes = forest.getChangedCells();
+        // If the forest does not keep track of the changed cells, repaint all of them
+        if (changes == null) {
+            repaintGrid();
+            return;
+        }
+        // Iterate over the changed cells and repaint them
+        for (int k = 0; k < changes.size(); k++) {
+            repaintCell(changes.getIndex(k));
+        }
+    }
+
+    /**
+     * Repaints one cell of the forest grid in the GUI based on the state of the forest.
+     *
+     * @param index the index of the cell in row-major order
+     */
+    private void repaintCell(int index) {
+        if (forestImage != null) {
+            forestImage.repaintCell(forest, index);
+        } else {
+            updateRectangle(index / columns, index % columns);
+        }
+    }
+
+    /**
+     * Repaints every cell of the forest grid in the GUI based on the state of the forest.
+     */
+    private void repaintGrid() {
+        if (forestImage != null) {
+            forestImage.repaintAll(forest);
+            return;
+        }
         // Iterate over the grid and update the rectangles based on the state of the cells
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                // Get the rectangle and state of the cell
-                Rectangle rectangle = grid[i][j].getRectangle();
-                ForestCell.State state = grid[i][j].getState();
-                // If the cell is burning, set the rectangle to red
-                if (state == ForestCell.State.BURNING) {
-                    rectangle.setFill(Color.RED);
-                    // If the cell is scorched, set the rectangle to yellow
-                } else if (state == ForestCell.State.SCORCHED) {
-                    rectangle.setFill(Color.YELLOW);
-                    // If the cell is untouched, set the rectangle to green
-                } else {
-                    rectangle.setFill(Color.GREEN);
-                }
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                updateRectangle(i, j);
             }
         }
     }
 
     /**
-     * Starts the simulation with the given fire probability and wind direction.
+     * Updates the color of one rectangle based on the state of its cell.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     */
+    private void updateRectangle(int i, int j) {
+        // Get the rectangle and state of the cell
+        Rectangle rectangle = rectangles[i][j];
+        ForestCell.State state = forest.getState(i, j);
+        // If the cell is burning, set the rectangle to red
+        if (state == ForestCell.State.BURNING) {
+            rectangle.setFill(Color.RED);
+            // If the cell is scorched, set the rectangle to yellow
+        } else if (state == ForestCell.State.SCORCHED) {
+            rectangle.setFill(Color.YELLOW);
+            // If the cell is untouched, set the rectangle to green
+        } else {
+            rectangle.setFill(Color.GREEN);
+        }
+    }
+
+    /**
+     * Starts the simulation with the given fire probability and wind direction,
+     * or resumes it with them if it was paused.
      *
      * @param probability   the fire probability
      * @param windDirection the wind direction
      */
     private void startSimulation(double probability, String windDirection) {
-        // Debug Statement
-        System.out.println("Simulation Start # " + (simulationCycles + 1));
-        // Start the fire in the center of the forest
-        startFire();
-        // Update the forest grid in the GUI
-        updateGrid();
-        countdownTimeline = createCountdownTimeline();
-        // Set the countdown timeline to run indefinitely
-        countdownTimeline.setCycleCount(Timeline.INDEFINITE);
-        countdownTimeline.play();
-        // Create the fire spread timeline
-        timeline = createFireSpreadTimeline(probability, windDirection);
-        // Set the timeline to run indefinitely
-        timeline.setCycleCount(Timeline.INDEFINITE);
-        // Start the simulation
-        timeline.play();
+        if (replay == null && spreadController == null) {
+            // Pass the fire probability and wind direction to the forest, which is not being stepped yet
+            forest.setSpreadParameters(probability, Forest.WindDirection.valueOf(windDirection));
+            // A restored simulation already made the changes up to the cycle it was saved at
+            spreadController = new SpreadController(new SpreadKernel(probability, Forest.WindDirection.valueOf(windDirection)),
+                    spreadSchedule, forest.getSimulationCycles());
+            shownScheduledChanges = 0;
+        }
+        if (simulationLoop == null) {
+            // A replay or a restored simulation is already burning
+            if (forest.getSimulationCycles() == 0) {
+                // Start the fire in the center of the forest
+                startFire();
+            }
+            // Create the loop that steps the forest on its own thread, changing its spread parameters between cycles
+            simulationLoop = new SimulationLoop(forest, getTickInterval(), null, spreadController);
+        }
+        // Start the simulation and the timer that draws it
+        simulationLoop.start();
+        frameTimer.start();
         pauseButton.setDisable(false);
         startButton.setDisable(true);
         resetButton.setDisable(false);
     }
 
+    /**
+     * Hands the fire probability and wind direction of the controls to the running simulation.
+     * Nothing is handed over before the simulation is started, since it reads the controls when it starts.
+     */
+    private void publishSpreadParameters() {
+        if (spreadController != null && !followingSchedule) {
+            spreadController.publish(probabilitySlider.getValue(), Forest.WindDirection.valueOf(windDirectionComboBox.getValue()));
+        }
+    }
+
+    /**
+     * Moves the slider and the combo box to the spread parameters the simulation is using,
+     * if the schedule has changed them since the last frame.
+     */
+    private void showScheduledSpreadParameters() {
+        if (spreadController == null) {
+            return;
+        }
+        int scheduledChanges = spreadController.getScheduledChangesMade();
+        if (scheduledChanges != shownScheduledChanges) {
+            shownScheduledChanges = scheduledChanges;
+            SpreadKernel kernel = spreadController.getSpreadKernel();
+            followingSchedule = true;
+            probabilitySlider.setValue(kernel.getProbability());
+            windDirectionComboBox.setValue(kernel.getWindDirection().name());
+            followingSchedule = false;
+        }
+    }
+
     /**
      * Starts the fire in the center of the forest.
      */
     private void startFire() {
         // Start the fire in the center of the forest
-        int center = GRID_SIZE / 2;
-        forestGrid[center][center].setState(ForestCell.State.BURNING);
+        forest.startFire(rows / 2, columns / 2);
         // Update the forest grid in the GUI
         updateGrid();
-        // Increment the number of simulation cycles to 1
-        // This is the first cycle of the simulation
-        simulationCycles = 1;
-        // Update the simulation cycles label
+        // The forest counts the cycle the fire was started in as the first cycle
+        simulationCycles = forest.getSimulationCycles();
+        // Update the simulation cycles label and the cell counts
         simulationCyclesLabel.setText("Simulation Cycles: " + simulationCycles);
+        showCellCounts(forest::getStateCount);
     }
 
     /**
-     * Creates the countdown timeline for the simulation.
+     * Updates the label with the number of untouched, burning and scorched cells. The engine keeps count of them as the
+     * cells change, so this does not scan the forest. The label is left empty if the engine does not keep count.
      *
-     * @return the countdown timeline
-     */
-    private Timeline createCountdownTimeline() {
-        // Create a timeline to update the countdown label every second
-        return new Timeline(new KeyFrame(Duration.seconds(1), event -> {
-            String countdownText = countdownLabel.getText();
-            int countdownTime = Integer.parseInt(countdownText.substring(countdownText.lastIndexOf(":") + 2).replace(" seconds", ""));
-            if (countdownTime > 0) {
-                // Decrement the countdown time
-                countdownTime--;
-                countdownLabel.setText("Next cycle in: " + countdownTime + " seconds");
-            } else {
-                countdownTimeline.stop();
-            }
-        }));
+     * @param counts the number of cells in a state, or -1 if the engine does not keep count of them
+     */
+    private void showCellCounts(ToLongFunction<ForestCell.State> counts) {
+        long burning = counts.applyAsLong(ForestCell.State.BURNING);
+        if (burning < 0) {
+            cellCountsLabel.setText("");
+            return;
+        }
+        cellCountsLabel.setText(String.format("Untouched: %d   Burning: %d   Scorched: %d",
+                counts.applyAsLong(ForestCell.State.UNTOUCHED), burning, counts.applyAsLong(ForestCell.State.SCORCHED)));
     }
 
     /**
-     * Starts the simulation with the given fire probability and wind direction.
-     * This method initializes the simulation, starts the fire in the center of the forest,
-     * and begins the countdown and fire spread timelines.
+     * Creates the timer that draws the latest generation of the forest once per frame.
      *
-     * @param probability   the fire probability
-     * @param windDirection the wind direction
+     * @return the frame timer
      */
-    private Timeline createFireSpreadTimeline(double probability, String windDirection) {
-        // Create a timeline to control the simulation
-        // The timeline will update the fire spread in the forest every 5 seconds
-        return new Timeline(new KeyFrame(Duration.seconds(5), event -> {
-            boolean[][] burningCells = new boolean[GRID_SIZE][GRID_SIZE];
-            for (int i = 0; i < GRID_SIZE; i++) {
-                for (int j = 0; j < GRID_SIZE; j++) {
-                    ForestCell.State state = forest.getGrid()[i][j].getState();
-                    // If the cell is burning, set the corresponding cell in the burningCells array to true
-                    if (state == ForestCell.State.BURNING) {
-                        // Set the cell to burning
-                        burningCells[i][j] = true;
-                        forest.getGrid()[i][j].setState(ForestCell.State.BURNING);
-                    }
-                }
-            }
-
-            // Update the fire spread in the forest
-            updateFireSpread(burningCells, probability, windDirection);
-            // Increment the number of simulation cycles
-            simulationCycles++;
-            // Update the simulation cycles label
-            simulationCyclesLabel.setText("Simulation Cycles: " + simulationCycles);
-            // Update the forest grid in the GUI
-            updateGrid();
-            if (checkStillBurning()) {
-                // If the fire has gone out, stop the timeline and display an alert
-                timeline.stop();
-                javafx.application.Platform.runLater(() -> {
-                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                    alert.setTitle("Simulation Complete");
-                    alert.setHeaderText(null);
-                    alert.setContentText("The simulation has completed. It took " + simulationCycles + " simulation cycle time units for the fire to go out.");
-                    alert.showAndWait();
-                    startButton.setDisable(true);
-                    pauseButton.setDisable(true);
-                    resetButton.setDisable(false);
-                });
+    private AnimationTimer createFrameTimer() {
+        return new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drawFrame();
             }
-            // Update the countdown label
-            countdownLabel.setText("Next cycle in: 5 seconds");
-        }));
+        };
     }
 
     /**
-     * Updates the fire spread in the forest based on the given fire probability and wind direction.
-     * This method iterates over all cells and, if a cell is burning, it attempts to spread the fire to adjacent cells.
-     *
-     * @param burningCells  the cells that are currently burning
-     * @param probability   the fire probability
-     * @param windDirection the wind direction
+     * Draws the latest generation of the forest, if there is a new one, and updates the labels.
+     * Stops the simulation and displays an alert once the fire has gone out.
      */
-    private void updateFireSpread(boolean[][] burningCells, double probability, String windDirection) {
-        // Spread the fire to adjacent cells
-        // The fire can spread to the north, south, east, or west of the specified cell
-        // The probability of the fire spreading to an adjacent cell is adjusted based on the wind direction
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                if (burningCells[i][j]) {
-                    forest.burnAdjacent(i, j, probability, windDirection);
-                }
+    private void drawFrame() {
+        // Check if the fire has gone out before drawing, so the last generation is drawn too
+        boolean finished = simulationLoop.isFinished();
+        // Repaint the cells that changed since the last frame
+        int cycle = simulationLoop.drainFrame(this::repaintCell, this::repaintGrid);
+        if (cycle >= 0) {
+            simulationCycles = cycle;
+            // Update the simulation cycles label and the cell counts
+            simulationCyclesLabel.setText("Simulation Cycles: " + simulationCycles);
+            showCellCounts(simulationLoop::getStateCount);
+            if (seekSlider != null) {
+                // Move the seek slider along with the replay without seeking
+                followingReplay = true;
+                seekSlider.setValue(simulationCycles);
+                followingReplay = false;
             }
         }
+        // Follow the spread parameters changed by the schedule
+        showScheduledSpreadParameters();
+        // Update the countdown label
+        updateCountdownLabel();
+        if (finished) {
+            // If the fire has gone out, stop the timer and display an alert
+            frameTimer.stop();
+            javafx.application.Platform.runLater(() -> {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Simulation Complete");
+                alert.setHeaderText(null);
+                alert.setContentText("The simulation has completed. It took " + simulationCycles + " simulation cycle time units for the fire to go out.");
+                alert.showAndWait();
+                startButton.setDisable(true);
+                pauseButton.setDisable(true);
+                resetButton.setDisable(false);
+            });
+        }
     }
 
     /**
-     * Checks if the fire has visited all cells in the forest.
-     *
-     * @return true if all cells have been visited, false otherwise
-     */
-    private boolean checkStillBurning() {
-        // Check if all cells have been visited
-        // If all cells have been visited, the fire has gone out
-        // If there are still cells burning, the fire is still spreading
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                ForestCell.State state = forest.getGrid()[i][j].getState();
-                if (state == ForestCell.State.BURNING) {
-                    return false;
-                }
-            }
+     * Updates the countdown label. Slow speeds count down the seconds to the next simulation cycle,
+     * faster speeds show the number of simulation cycles per second instead.
+     */
+    private void updateCountdownLabel() {
+        long tickInterval = simulationLoop.getTickInterval();
+        if (tickInterval == SimulationLoop.AS_FAST_AS_POSSIBLE) {
+            countdownLabel.setText("Running as fast as possible");
+        } else if (tickInterval < TimeUnit.SECONDS.toNanos(1)) {
+            countdownLabel.setText(String.format("Running at %.0f cycles per second", (double) TimeUnit.SECONDS.toNanos(1) / tickInterval));
+        } else {
+            // Round the time left up to whole seconds
+            long seconds = (simulationLoop.getNanosUntilNextTick() + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+            countdownLabel.setText("Next cycle in: " + seconds + " seconds");
         }
-        return true;
     }
 
     /**
      * Pauses the simulation.
      */
     private void pauseSimulation() {
-        if (timeline != null) {
-            System.out.println("Simulation Paused");
+        if (simulationLoop != null) {
             pauseButton.setDisable(true);
             startButton.setDisable(false);
-            timeline.pause();
+            // Wait for the step in progress and draw it
+            simulationLoop.pause();
+            frameTimer.stop();
+            drawFrame();
+            if (checkpointFile != null && replay == null) {
+                saveCheckpoint();
+            }
         }
-        if (countdownTimeline != null) {
-            countdownTimeline.pause();
+    }
+
+    /**
+     * Saves the simulation to the checkpoint file, so it can be resumed after the application is closed.
+     * The simulation must be paused.
+     */
+    private void saveCheckpoint() {
+        try {
+            Checkpoint.write(forest, checkpointFile);
+        } catch (IOException | IllegalArgumentException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Checkpoint Failed");
+            alert.setHeaderText(null);
+            alert.setContentText("The simulation could not be saved to " + checkpointFile + ": " + e.getMessage());
+            alert.show();
         }
     }
 
+    /**
+     * Jumps to a simulation cycle of the recorded run. A running replay is paused at that cycle.
+     *
+     * @param cycle the simulation cycle to jump to
+     */
+    private void seekReplay(int cycle) {
+        // Stop stepping the replay, and start a new loop from the new cycle once it is resumed
+        if (simulationLoop != null) {
+            simulationLoop.pause();
+            simulationLoop = null;
+        }
+        frameTimer.stop();
+        replay.seek(cycle);
+        showReplayCycle();
+        startButton.setDisable(!replay.isStillBurning());
+        pauseButton.setDisable(true);
+        resetButton.setDisable(false);
+    }
+
+    /**
+     * Draws the forest and the simulation cycles label at the current cycle of the recorded run.
+     */
+    private void showReplayCycle() {
+        repaintGrid();
+        simulationCycles = replay.getSimulationCycles();
+        simulationCyclesLabel.setText("Simulation Cycles: " + simulationCycles);
+    }
+
     /**
      * Resets the simulation.
      *
@@ -520,29 +937,27 @@ public class ForestFireSimulator extends Application {
      * @param windDirectionComboBox the combo box that controls the wind direction
      */
     private void resetSimulation(Slider probabilitySlider, ComboBox<String> windDirectionComboBox) {
-        // Stop the simulation timelines
-        if (timeline != null) {
-            System.out.println("Simulation Reset");
-            timeline.stop();
-            timeline = null;
-        }
-
-        // Stop the countdown timeline
-        if (countdownTimeline != null) {
-            countdownTimeline.stop();
-            countdownTimeline = null;
+        // Stop the simulation thread and the frame timer
+        if (simulationLoop != null) {
+            simulationLoop.pause();
+            simulationLoop = null;
         }
+        frameTimer.stop();
+        // The next simulation starts over with the controls and the schedule
+        spreadController = null;
 
         // Reset the forest and the simulation cycles
-        forest = new Forest(GRID_SIZE, forestGrid);
+        forest = createForest();
         simulationCycles = 0;
 
-        // Set the fire probability and wind direction to their default values
+        // Set the fire probability, wind direction and speed to their default values
         probabilitySlider.setValue(0.3);
         windDirectionComboBox.setValue("NORTH");
+        speedComboBox.setValue(SPEED_NAMES[0]);
 
-        // Reset the simulation cycles label and the countdown label
+        // Reset the simulation cycles label, the cell counts and the countdown label
         simulationCyclesLabel.setText("Simulation Cycles: 0");
+        showCellCounts(forest::getStateCount);
         countdownLabel.setText("Next cycle in: 5 seconds");
 
         // Reset the buttons
@@ -550,12 +965,14 @@ public class ForestFireSimulator extends Application {
         pauseButton.setDisable(true);
         resetButton.setDisable(true);
 
-        // Reset the forestGrid
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                forestGrid[i][j].setState(ForestCell.State.UNTOUCHED);
-                forestGrid[i][j].getRectangle().setFill(Color.GREEN);
-            }
+        // Reset the forest grid in the GUI, which has nothing to do with the cells changed by the old forest
+        repaintGrid();
+        if (seekSlider != null) {
+            // Rewind the seek slider and the label along with the replay
+            showReplayCycle();
+            followingReplay = true;
+            seekSlider.setValue(simulationCycles);
+            followingReplay = false;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package org.example.program4;
+
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import org.example.program4.engine.CellChanges;
+import org.example.program4.engine.ForestCell;
+import org.example.program4.engine.SimulationEngine;
+
+/**
+ * Draws the forest into an image with one pixel per cell, scaled up to the display size without smoothing.
+ * Unlike a grid pane with one rectangle node per cell, this works for forests with millions of cells,
+ * and only the pixels of the cells that changed since the last frame are written.
+ */
+public class ForestImageView {
+
+    /**
+     * The color of an untouched cell, the same green as {@code Color.GREEN}.
+     */
+    private static final int UNTOUCHED_ARGB = 0xFF008000;
+
+    /**
+     * The color of a burning cell, the same red as {@code Color.RED}.
+     */
+    private static final int BURNING_ARGB = 0xFFFF0000;
+
+    /**
+     * The color of a scorched cell, the same yellow as {@code Color.YELLOW}.
+     */
+    private static final int SCORCHED_ARGB = 0xFFFFFF00;
+
+    /**
+     * The number of rows of the grid that represents the forest, which is the width of the image.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the grid that represents the forest, which is the height of the image.
+     */
+    private final int columns;
+
+    /**
+     * The image with one pixel per cell.
+     */
+    private final WritableImage image;
+
+    /**
+     * The writer for the pixels of the image.
+     */
+    private final PixelWriter pixelWriter;
+
+    /**
+     * The node that shows the image in the GUI.
+     */
+    private final ImageView view;
+
+    /**
+     * Constructs an image view for a forest of the specified size where every cell is untouched.
+     *
+     * @param rows        the number of rows of the grid that represents the forest
+     * @param columns     the number of columns of the grid that represents the forest
+     * @param displaySize the largest width and height of the view in the GUI
+     */
+    public ForestImageView(int rows, int columns, double displaySize) {
+        this.rows = rows;
+        this.columns = columns;
+        this.image = new WritableImage(rows, columns);
+        this.pixelWriter = image.getPixelWriter();
+        this.view = new ImageView(image);
+        // Keep the cells sharp when the image is scaled up
+        view.setSmooth(false);
+        view.setFitWidth(displaySize);
+        view.setFitHeight(displaySize);
+        view.setPreserveRatio(true);
+    }
+
+    /**
+     * Returns the node that shows the forest in the GUI.
+     *
+     * @return the image view
+     */
+    public ImageView getView() {
+        return view;
+    }
+
+    /**
+     * Repaints the cells that changed during the last simulation cycle,
+     * or the whole forest if the engine does not keep track of the changed cells.
+     *
+     * @param engine the engine that is being simulated
+     */
+    public void repaintChanges(SimulationEngine engine) {
+        CellChanges changes = engine.getChangedCells();
+        if (changes == null) {
+            repaintAll(engine);
+            return;
+        }
+        for (int k = 0; k < changes.size(); k++) {
+            repaintCell(engine, changes.getIndex(k));
+        }
+    }
+
+    /**
+     * Repaints one cell of the forest.
+     *
+     * @param engine the engine that is being simulated
+     * @param index  the index of the cell in row-major order
+     */
+    public void repaintCell(SimulationEngine engine, int index) {
+        int i = index / columns;
+        int j = index % columns;
+        paintCell(i, j, engine.getState(i, j));
+    }
+
+    /**
+     * Repaints every cell of the forest.
+     *
+     * @param engine the engine that is being simulated
+     */
+    public void repaintAll(SimulationEngine engine) {
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                paintCell(i, j, engine.getState(i, j));
+            }
+        }
+    }
+
+    /**
+     * Paints one cell in the color of its state.
+     * The x-coordinate of the cell is the column of the image, like in the grid pane.
+     *
+     * @param i     the x-coordinate of the cell
+     * @param j     the y-coordinate of the cell
+     * @param state the state of the cell
+     */
+    public void paintCell(int i, int j, ForestCell.State state) {
+        int argb = switch (state) {
+            case UNTOUCHED -> UNTOUCHED_ARGB;
+            case BURNING -> BURNING_ARGB;
+            case SCORCHED -> SCORCHED_ARGB;
+        };
+        pixelWriter.setArgb(i, j, argb);
+    }
+}
@@ -0,0 +1,339 @@
+package org.example.program4;
+
+import org.example.program4.engine.CellChanges;
+import org.example.program4.engine.ForestCell;
+import org.example.program4.engine.SimulationEngine;
+import org.example.program4.engine.SpreadController;
+import org.example.program4.metrics.InstrumentedEngine;
+import org.example.program4.metrics.StepListener;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs a simulation engine on its own thread at a configurable tick rate, so heavy steps do not freeze the GUI.
+ * <p>
+ * After each step the cells that changed are added to a pending list. The GUI calls {@link #drainFrame} once per
+ * rendered frame to repaint the pending cells from the latest state of the forest. If the simulation runs faster
+ * than the GUI can render, the generations in between are never drawn; their changed cells are simply repainted
+ * with the state they have now.
+ * <p>
+ * The engine is only touched while holding the lock of the loop, so a frame never sees a half-finished step.
+ * <p>
+ * The engine is stepped through an {@link InstrumentedEngine}, so its simulation cycles show up in a flight recording
+ * and can be measured by a {@link StepListener}.
+ * <p>
+ * The spread parameters can be changed while the loop is running through a {@link SpreadController}, which hands
+ * them to the simulation thread between two steps.
+ */
+public class SimulationLoop {
+
+    /**
+     * The tick interval that runs the simulation as fast as possible.
+     */
+    public static final long AS_FAST_AS_POSSIBLE = 0;
+
+    /**
+     * The engine that is being simulated.
+     */
+    private final SimulationEngine engine;
+
+    /**
+     * The controller that changes the spread parameters between steps, or null if they do not change.
+     */
+    private final SpreadController spreadController;
+
+    /**
+     * The lock that guards the engine and the pending cells.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The number of cells in the forest. Once this many changes are pending, the whole forest is repainted instead.
+     */
+    private final int maxPendingCells;
+
+    /**
+     * The indices of the cells that changed since the last frame.
+     */
+    private int[] pendingCells = new int[16];
+
+    /**
+     * The number of cells that changed since the last frame.
+     */
+    private int pendingCount;
+
+    /**
+     * Whether the whole forest has to be repainted in the next frame.
+     */
+    private boolean pendingRepaintAll;
+
+    /**
+     * The number of simulation cycles at the last step.
+     */
+    private int latestCycle;
+
+    /**
+     * The number of simulation cycles at the last frame.
+     */
+    private int drawnCycle;
+
+    /**
+     * The time between two steps in nanoseconds, or {@link #AS_FAST_AS_POSSIBLE}.
+     */
+    private volatile long tickIntervalNanos;
+
+    /**
+     * The time of the next step, from {@link System#nanoTime()}.
+     */
+    private volatile long nextTickTime;
+
+    /**
+     * Whether the simulation thread should keep stepping.
+     */
+    private volatile boolean running;
+
+    /**
+     * Whether the fire has gone out.
+     */
+    private volatile boolean finished;
+
+    /**
+     * The thread that steps the engine, or null if the loop has not been started.
+     */
+    private Thread thread;
+
+    /**
+     * Constructs a loop for an engine where the fire has already been started.
+     *
+     * @param engine            the engine that is being simulated
+     * @param tickIntervalNanos the time between two steps in nanoseconds, or {@link #AS_FAST_AS_POSSIBLE}
+     */
+    public SimulationLoop(SimulationEngine engine, long tickIntervalNanos) {
+        this(engine, tickIntervalNanos, null);
+    }
+
+    /**
+     * Constructs a loop for an engine where the fire has already been started, measuring every simulation cycle.
+     * The listener is called on the simulation thread.
+     *
+     * @param engine            the engine that is being simulated
+     * @param tickIntervalNanos the time between two steps in nanoseconds, or {@link #AS_FAST_AS_POSSIBLE}
+     * @param stepListener      the listener that receives the measurements of every simulation cycle, or null if there is none
+     */
+    public SimulationLoop(SimulationEngine engine, long tickIntervalNanos, StepListener stepListener) {
+        this(engine, tickIntervalNanos, stepListener, null);
+    }
+
+    /**
+     * Constructs a loop for an engine where the fire has already been started, measuring every simulation cycle
+     * and changing the spread parameters between steps. The listener is called on the simulation thread.
+     *
+     * @param engine            the engine that is being simulated
+     * @param tickIntervalNanos the time between two steps in nanoseconds, or {@link #AS_FAST_AS_POSSIBLE}
+     * @param stepListener      the listener that receives the measurements of every simulation cycle, or null if there is none
+     * @param spreadController  the controller that changes the spread parameters between steps, or null if they do not change
+     */
+    public SimulationLoop(SimulationEngine engine, long tickIntervalNanos, StepListener stepListener, SpreadController spreadController) {
+        this.engine = new InstrumentedEngine(engine, stepListener);
+        this.spreadController = spreadController;
+        this.tickIntervalNanos = tickIntervalNanos;
+        this.maxPendingCells = (int) Math.min(Integer.MAX_VALUE, (long) engine.getRows() * engine.getColumns());
+        this.latestCycle = engine.getSimulationCycles();
+        this.drawnCycle = latestCycle;
+        this.finished = !engine.isStillBurning();
+    }
+
+    /**
+     * Starts or resumes stepping the engine on the simulation thread.
+     * The first step is taken one tick interval from now.
+     */
+    public void start() {
+        if (running || finished) {
+            return;
+        }
+        running = true;
+        nextTickTime = System.nanoTime() + tickIntervalNanos;
+        thread = new Thread(this::run, "simulation");
+        // The simulation thread must not keep the application alive once the window is closed
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops stepping the engine. The step in progress, if any, is finished before this method returns.
+     */
+    public void pause() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * Sets the time between two steps. A running loop uses the new interval for the step it is waiting for.
+     *
+     * @param tickIntervalNanos the time between two steps in nanoseconds, or {@link #AS_FAST_AS_POSSIBLE}
+     */
+    public void setTickInterval(long tickIntervalNanos) {
+        long lastTickTime = nextTickTime - this.tickIntervalNanos;
+        this.tickIntervalNanos = tickIntervalNanos;
+        this.nextTickTime = lastTickTime + tickIntervalNanos;
+        // Wake the simulation thread up so it waits for the new time instead of the old one
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    /**
+     * Returns the time between two steps.
+     *
+     * @return the time between two steps in nanoseconds, or {@link #AS_FAST_AS_POSSIBLE}
+     */
+    public long getTickInterval() {
+        return tickIntervalNanos;
+    }
+
+    /**
+     * Returns the time left until the next step.
+     *
+     * @return the time left in nanoseconds, or 0 if the next step is due
+     */
+    public long getNanosUntilNextTick() {
+        return Math.max(0, nextTickTime - System.nanoTime());
+    }
+
+    /**
+     * Checks if the fire has gone out. The last generation may still have to be drawn by {@link #drainFrame}.
+     *
+     * @return true if the fire has gone out
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Returns the number of cells in the specified state after the last step, if the engine keeps count of them.
+     * The engine keeps the counts as the cells change, so this only waits for a step in progress to finish.
+     *
+     * @param state the state
+     * @return the number of cells in the state, or -1 if the engine does not keep count of them
+     */
+    public long getStateCount(ForestCell.State state) {
+        synchronized (lock) {
+            return engine.getStateCount(state);
+        }
+    }
+
+    /**
+     * Checks if the simulation thread is stepping the engine.
+     *
+     * @return true if the loop is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Hands the cells that changed since the last frame to the GUI, if a new generation has been simulated.
+     * The callbacks are run while holding the lock, so they can read the state of the engine.
+     *
+     * @param repaintCell called with the row-major index of each changed cell
+     * @param repaintAll  called instead if the whole forest has to be repainted
+     * @return the number of simulation cycles of the generation drawn, or -1 if nothing changed since the last frame
+     */
+    public int drainFrame(IntConsumer repaintCell, Runnable repaintAll) {
+        synchronized (lock) {
+            if (latestCycle == drawnCycle) {
+                return -1;
+            }
+            drawnCycle = latestCycle;
+            if (pendingRepaintAll) {
+                repaintAll.run();
+            } else {
+                for (int k = 0; k < pendingCount; k++) {
+                    repaintCell.accept(pendingCells[k]);
+                }
+            }
+            pendingCount = 0;
+            pendingRepaintAll = false;
+            return drawnCycle;
+        }
+    }
+
+    /**
+     * Steps the engine until the loop is paused or the fire goes out.
+     */
+    private void run() {
+        while (running) {
+            // Wait for the next tick, checking the time again whenever the tick interval is changed
+            long remaining;
+            while (running && (remaining = nextTickTime - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            if (!running) {
+                break;
+            }
+            nextTickTime = System.nanoTime() + tickIntervalNanos;
+            boolean stillBurning;
+            synchronized (lock) {
+                if (spreadController != null) {
+                    spreadController.beforeStep(engine);
+                }
+                stillBurning = engine.step();
+                addPendingCells(engine.getChangedCells());
+                latestCycle = engine.getSimulationCycles();
+            }
+            if (!stillBurning) {
+                finished = true;
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * Adds the cells changed by the last step to the pending cells.
+     *
+     * @param changes the changed cells, or null if the engine does not keep track of them
+     */
+    private void addPendingCells(CellChanges changes) {
+        if (pendingRepaintAll) {
+            return;
+        }
+        // Once the pending list is as long as the forest, repainting the whole forest is cheaper
+        if (changes == null || pendingCount + changes.size() > maxPendingCells) {
+            pendingRepaintAll = true;
+            pendingCount = 0;
+            return;
+        }
+        if (pendingCount + changes.size() > pendingCells.length) {
+            pendingCells = Arrays.copyOf(pendingCells, Math.max(pendingCells.length * 2, pendingCount + changes.size()));
+        }
+        for (int k = 0; k < changes.size(); k++) {
+            pendingCells[pendingCount++] = changes.getIndex(k);
+        }
+    }
+
+    /**
+     * Converts a tick rate to the time between two steps.
+     *
+     * @param ticksPerSecond the number of steps per second, or 0 to run as fast as possible
+     * @return the time between two steps in nanoseconds
+     */
+    public static long toTickInterval(double ticksPerSecond) {
+        if (ticksPerSecond <= 0) {
+            return AS_FAST_AS_POSSIBLE;
+        }
+        return (long) (TimeUnit.SECONDS.toNanos(1) / ticksPerSecond);
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.program4.batch;
+
+/**
+ * How well a {@link ResultCache} has been doing since it was created.
+ *
+ * @param memoryHits  the number of requests answered from memory
+ * @param diskHits    the number of requests answered from disk
+ * @param misses      the number of requests that had to be simulated, including scenarios that cannot be cached
+ * @param evictions   the number of results dropped from memory to stay within the byte budget
+ * @param entries     the number of results currently held in memory
+ * @param bytes       the estimated number of bytes of the results currently held in memory
+ */
+public record CacheStatistics(long memoryHits, long diskHits, long misses, long evictions, int entries, long bytes) {
+
+    /**
+     * Returns the fraction of requests that did not have to be simulated.
+     *
+     * @return the hit rate between 0.0 and 1.0, or 0 if there were no requests
+     */
+    public double hitRate() {
+        long requests = memoryHits + diskHits + misses;
+        return requests == 0 ? 0 : (double) (memoryHits + diskHits) / requests;
+    }
+}
@@ -0,0 +1,244 @@
+package org.example.program4.batch;
+
+import org.example.program4.engine.ForestCell;
+import org.example.program4.engine.SimulationEngine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The combined results of many runs of the same scenario. The results are updated as each run finishes,
+ * so they can be read while the runs are still going. The memory used does not depend on the number of runs.
+ * All methods are thread safe.
+ */
+public class EnsembleResult {
+
+    /**
+     * The scenario that was run.
+     */
+    private final Scenario scenario;
+
+    /**
+     * The number of runs in which each cell burned, in row-major order.
+     */
+    private final AtomicLongArray burnCounts;
+
+    /**
+     * The number of simulation cycles it took for the fire to go out in each run.
+     */
+    private final Histogram cycles = new Histogram();
+
+    /**
+     * The number of cells that burned in each run.
+     */
+    private final Histogram burnedArea = new Histogram();
+
+    /**
+     * The number of runs in which the fire reached the edge of the grid.
+     */
+    private final AtomicLong edgeReachedRuns = new AtomicLong();
+
+    /**
+     * Constructs an empty result for the specified scenario.
+     *
+     * @param scenario the scenario that is run
+     * @throws IllegalArgumentException if the forest has more cells than a count can be kept for
+     */
+    public EnsembleResult(Scenario scenario) {
+        if (scenario.isLarge()) {
+            throw new IllegalArgumentException("An ensemble can count the burns of at most " + Integer.MAX_VALUE
+                    + " cells, not " + scenario.rows() + " x " + scenario.columns());
+        }
+        this.scenario = scenario;
+        this.burnCounts = new AtomicLongArray(scenario.rows() * scenario.columns());
+    }
+
+    /**
+     * Adds the result of a finished run.
+     *
+     * @param engine the engine of the run, after the fire has gone out
+     */
+    public void addRun(SimulationEngine engine) {
+        int rows = scenario.rows();
+        int columns = scenario.columns();
+        int burned = 0;
+        boolean edgeReached = false;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (engine.getState(i, j) != ForestCell.State.UNTOUCHED) {
+                    burnCounts.incrementAndGet(i * columns + j);
+                    burned++;
+                    edgeReached |= i == 0 || j == 0 || i == rows - 1 || j == columns - 1;
+                }
+            }
+        }
+        burnedArea.add(burned);
+        if (edgeReached) {
+            edgeReachedRuns.incrementAndGet();
+        }
+        // Counted last, so the number of runs never includes a run whose cells are not counted yet
+        cycles.add(engine.getSimulationCycles());
+    }
+
+    /**
+     * Returns the scenario that was run.
+     *
+     * @return the scenario
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Returns the number of runs that have finished.
+     *
+     * @return the number of finished runs
+     */
+    public long getCompletedRuns() {
+        return cycles.getTotal();
+    }
+
+    /**
+     * Returns the number of runs in which the specified cell burned.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the number of runs in which the cell burned
+     */
+    public long getBurnCount(int i, int j) {
+        return burnCounts.get(i * scenario.columns() + j);
+    }
+
+    /**
+     * Returns the fraction of the finished runs in which the specified cell burned.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the burn frequency of the cell between 0.0 and 1.0
+     */
+    public double getBurnFrequency(int i, int j) {
+        long runs = getCompletedRuns();
+        return runs == 0 ? 0 : (double) getBurnCount(i, j) / runs;
+    }
+
+    /**
+     * Returns the fraction of the finished runs in which the fire reached the edge of the grid.
+     *
+     * @return the fraction of runs between 0.0 and 1.0
+     */
+    public double getEdgeReachedFraction() {
+        long runs = getCompletedRuns();
+        return runs == 0 ? 0 : (double) edgeReachedRuns.get() / runs;
+    }
+
+    /**
+     * Returns the average fraction of the forest that burned in the finished runs.
+     *
+     * @return the average burned fraction between 0.0 and 1.0
+     */
+    public double getBurnedFraction() {
+        return burnedArea.getMean() / ((double) scenario.rows() * scenario.columns());
+    }
+
+    /**
+     * Returns the distribution of the number of simulation cycles it took for the fire to go out.
+     *
+     * @return the histogram of simulation cycles
+     */
+    public Histogram getCycles() {
+        return cycles;
+    }
+
+    /**
+     * Returns the distribution of the number of cells that burned.
+     *
+     * @return the histogram of burned cells
+     */
+    public Histogram getBurnedArea() {
+        return burnedArea;
+    }
+
+    /**
+     * Returns roughly how many bytes of memory the result takes.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimateSize() {
+        // The burn counts, the two histograms and the objects around them
+        return 8L * burnCounts.length() + 8L * (cycles.getMax() + 1) + 8L * (burnedArea.getMax() + 1) + 256;
+    }
+
+    /**
+     * Writes the combined results, but not the scenario, so they can be read back by {@link #readFrom}.
+     * No runs may be added while the result is written.
+     *
+     * @param out the output to write to
+     * @throws IOException if the output cannot be written
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(burnCounts.length());
+        for (int index = 0; index < burnCounts.length(); index++) {
+            out.writeLong(burnCounts.get(index));
+        }
+        writeHistogram(out, cycles);
+        writeHistogram(out, burnedArea);
+        out.writeLong(edgeReachedRuns.get());
+    }
+
+    /**
+     * Reads combined results written by {@link #writeTo}.
+     *
+     * @param scenario the scenario that was run
+     * @param in       the input to read from
+     * @return the combined results
+     * @throws IOException if the input cannot be read or does not fit the scenario
+     */
+    static EnsembleResult readFrom(Scenario scenario, DataInput in) throws IOException {
+        EnsembleResult result = new EnsembleResult(scenario);
+        if (in.readInt() != result.burnCounts.length()) {
+            throw new IOException("The results do not fit a forest of " + scenario.rows() + " x " + scenario.columns() + " cells");
+        }
+        for (int index = 0; index < result.burnCounts.length(); index++) {
+            result.burnCounts.set(index, in.readLong());
+        }
+        readHistogram(in, result.cycles);
+        readHistogram(in, result.burnedArea);
+        result.edgeReachedRuns.set(in.readLong());
+        return result;
+    }
+
+    /**
+     * Writes the counts of a histogram.
+     *
+     * @param out       the output to write to
+     * @param histogram the histogram
+     * @throws IOException if the output cannot be written
+     */
+    private static void writeHistogram(DataOutput out, Histogram histogram) throws IOException {
+        long[] counts = histogram.toArray();
+        out.writeInt(counts.length);
+        for (long count : counts) {
+            out.writeLong(count);
+        }
+    }
+
+    /**
+     * Reads the counts written by {@link #writeHistogram} into an empty histogram.
+     *
+     * @param in        the input to read from
+     * @param histogram the histogram to add the counts to
+     * @throws IOException if the input cannot be read
+     */
+    private static void readHistogram(DataInput in, Histogram histogram) throws IOException {
+        int length = in.readInt();
+        for (int value = 0; value < length; value++) {
+            long count = in.readLong();
+            if (count != 0) {
+                histogram.add(value, count);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.program4.batch;
+
+import org.example.program4.engine.SimulationEngine;
+import org.example.program4.metrics.InstrumentedEngine;
+import org.example.program4.metrics.StepListener;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Runs a scenario many times in parallel on a work-stealing fork-join pool and combines the results.
+ * The range of runs is split in half until a single run is left, so idle threads steal the remaining runs
+ * from busy threads. Each run is added to the result as soon as it finishes and its engine is then dropped,
+ * so the memory used does not grow with the number of runs.
+ * <p>
+ * Every run is stepped through an {@link InstrumentedEngine}, so its simulation cycles show up in a flight recording
+ * and can be measured by a {@link StepListener}.
+ */
+public class EnsembleRunner {
+
+    /**
+     * The pool the runs are executed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The listener that receives the measurements of every simulation cycle of every run, or null if there is none.
+     */
+    private final StepListener stepListener;
+
+    /**
+     * Constructs an ensemble runner that uses the common pool, which has one thread per core.
+     */
+    public EnsembleRunner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an ensemble runner that uses the specified pool.
+     *
+     * @param pool the pool the runs are executed on
+     */
+    public EnsembleRunner(ForkJoinPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * Constructs an ensemble runner that uses the specified pool and measures every simulation cycle.
+     * The listener is called from every thread of the pool, so it must be thread safe.
+     *
+     * @param pool         the pool the runs are executed on
+     * @param stepListener the listener that receives the measurements of every simulation cycle, or null if there is none
+     */
+    public EnsembleRunner(ForkJoinPool pool, StepListener stepListener) {
+        this.pool = pool;
+        this.stepListener = stepListener;
+    }
+
+    /**
+     * Runs the scenario the specified number of times and waits for all runs to finish.
+     *
+     * @param scenario the scenario to run
+     * @param runs     the number of runs
+     * @return the combined results of the runs
+     */
+    public EnsembleResult run(Scenario scenario, long runs) {
+        return run(scenario, runs, result -> {
+        });
+    }
+
+    /**
+     * Runs the scenario the specified number of times and waits for all runs to finish.
+     * The listener is called after each run has been added to the result, from the thread that ran it,
+     * so it can stream the results while the remaining runs are still going. It should return quickly.
+     *
+     * @param scenario      the scenario to run
+     * @param runs          the number of runs
+     * @param runsCompleted the listener called with the result after each run finishes
+     * @return the combined results of the runs
+     * @throws IllegalArgumentException if the forest has more cells than a count can be kept for
+     */
+    public EnsembleResult run(Scenario scenario, long runs, Consumer<EnsembleResult> runsCompleted) {
+        EnsembleResult result = new EnsembleResult(scenario);
+        pool.invoke(new RunTask(result, 0, runs, runsCompleted, stepListener));
+        return result;
+    }
+
+    /**
+     * A task that executes a range of runs, splitting the range in half until a single run is left.
+     */
+    @SuppressWarnings("serial")
+    private static class RunTask extends RecursiveAction {
+
+        /**
+         * The result the runs are added to.
+         */
+        private final EnsembleResult result;
+
+        /**
+         * The first run of the range.
+         */
+        private final long firstRun;
+
+        /**
+         * The run after the last run of the range.
+         */
+        private final long endRun;
+
+        /**
+         * The listener called with the result after each run finishes.
+         */
+        private final Consumer<EnsembleResult> runsCompleted;
+
+        /**
+         * The listener that receives the measurements of every simulation cycle, or null if there is none.
+         */
+        private final StepListener stepListener;
+
+        /**
+         * Constructs a task that executes the runs from firstRun up to, but not including, endRun.
+         *
+         * @param result        the result the runs are added to
+         * @param firstRun      the first run of the range
+         * @param endRun        the run after the last run of the range
+         * @param runsCompleted the listener called with the result after each run finishes
+         * @param stepListener  the listener that receives the measurements of every simulation cycle, or null if there is none
+         */
+        RunTask(EnsembleResult result, long firstRun, long endRun, Consumer<EnsembleResult> runsCompleted, StepListener stepListener) {
+            this.result = result;
+            this.firstRun = firstRun;
+            this.endRun = endRun;
+            this.runsCompleted = runsCompleted;
+            this.stepListener = stepListener;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRun - firstRun == 1) {
+                SimulationEngine engine = result.getScenario().createEngine(firstRun);
+                new InstrumentedEngine(engine, stepListener).runToCompletion();
+                result.addRun(engine);
+                runsCompleted.accept(result);
+            } else if (endRun - firstRun > 1) {
+                long middle = (firstRun + endRun) >>> 1;
+                invokeAll(new RunTask(result, firstRun, middle, runsCompleted, stepListener),
+                        new RunTask(result, middle, endRun, runsCompleted, stepListener));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.program4.batch;
+
+import java.util.Arrays;
+
+/**
+ * Counts how many times each non-negative whole number was seen.
+ * The counts are stored in an array indexed by the value, which grows to the largest value seen.
+ * All methods are thread safe.
+ */
+public class Histogram {
+
+    /**
+     * The number of times each value was seen, indexed by the value.
+     */
+    private long[] counts = new long[64];
+
+    /**
+     * The number of values seen.
+     */
+    private long total;
+
+    /**
+     * The sum of the values seen.
+     */
+    private long sum;
+
+    /**
+     * The largest value seen, or -1 if no value was seen.
+     */
+    private int max = -1;
+
+    /**
+     * Counts one more occurrence of the specified value.
+     *
+     * @param value the value, which must not be negative
+     */
+    public synchronized void add(int value) {
+        add(value, 1);
+    }
+
+    /**
+     * Counts more occurrences of the specified value.
+     *
+     * @param value the value, which must not be negative
+     * @param count the number of occurrences to add
+     */
+    public synchronized void add(int value, long count) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Histogram values must not be negative: " + value);
+        }
+        if (value >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(value + 1, counts.length * 2));
+        }
+        counts[value] += count;
+        total += count;
+        sum += value * count;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the number of times the specified value was seen.
+     *
+     * @param value the value
+     * @return the number of times the value was seen
+     */
+    public synchronized long getCount(int value) {
+        return value >= 0 && value < counts.length ? counts[value] : 0;
+    }
+
+    /**
+     * Returns the number of values seen.
+     *
+     * @return the number of values seen
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the average of the values seen.
+     *
+     * @return the average, or 0 if no value was seen
+     */
+    public synchronized double getMean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    /**
+     * Returns the largest value seen.
+     *
+     * @return the largest value, or -1 if no value was seen
+     */
+    public synchronized int getMax() {
+        return max;
+    }
+
+    /**
+     * Returns a copy of the counts, indexed by the value, up to the largest value seen.
+     *
+     * @return the counts
+     */
+    public synchronized long[] toArray() {
+        return Arrays.copyOf(counts, max + 1);
+    }
+}
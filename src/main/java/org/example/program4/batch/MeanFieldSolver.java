@@ -0,0 +1,134 @@
+package org.example.program4.batch;
+
+import org.example.program4.engine.Forest;
+import org.example.program4.engine.FuelMap;
+import org.example.program4.engine.SpreadKernel;
+
+import java.util.Arrays;
+
+/**
+ * Works out the probability of every cell of a scenario ever burning without simulating any runs, as a fast
+ * alternative to the burn frequencies of an {@link EnsembleRunner}.
+ * <p>
+ * Instead of the state of each cell, the solver keeps the probability of each cell being untouched, burning for
+ * the first cycle and burning for the second cycle, since a cell spreads the fire during the two cycles after it
+ * catches fire and is then scorched. Each simulation cycle is one pass over the grid: an untouched cell catches fire
+ * unless every neighbour fails to spread the fire to it, using the same adjusted probabilities as the engines and
+ * the fuel of the cell if the scenario has a fuel map.
+ * <p>
+ * The neighbours are assumed to burn independently of each other and of the cell, which is not true: the fire
+ * that reaches a cell usually came through one of its neighbours, and neighbours are often set on fire by the same
+ * cell. The probabilities are therefore usually higher than the burn frequencies of many runs, though single cells
+ * can come out somewhat lower. Well above the critical probability, around 0.4 and up, they agree closely and take
+ * about as many cycles as one run instead of thousands of runs. Near and below it, where most fires die out early,
+ * they are far too high, so there the risk map is only a rough guide and the {@link EnsembleRunner} should be used
+ * instead.
+ */
+public class MeanFieldSolver {
+
+    /**
+     * The total probability of cells burning below which the fire is taken to have gone out.
+     */
+    private final double tolerance;
+
+    /**
+     * The largest number of simulation cycles that are worked out.
+     */
+    private final int maxCycles;
+
+    /**
+     * Constructs a solver that stops once less than a millionth of a cell is expected to be burning.
+     */
+    public MeanFieldSolver() {
+        this(1e-6, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a solver with the specified stopping rule.
+     *
+     * @param tolerance the total probability of cells burning below which the fire is taken to have gone out
+     * @param maxCycles the largest number of simulation cycles that are worked out
+     */
+    public MeanFieldSolver(double tolerance, int maxCycles) {
+        this.tolerance = tolerance;
+        this.maxCycles = maxCycles;
+    }
+
+    /**
+     * Works out the probability of every cell of the scenario ever burning. The seed of the scenario is not used.
+     *
+     * @param scenario the scenario
+     * @return the probability of every cell burning
+     */
+    public RiskMap solve(Scenario scenario) {
+        int rows = scenario.rows();
+        int columns = scenario.columns();
+        int size = Math.multiplyExact(rows, columns);
+        SpreadKernel kernel = new SpreadKernel(scenario.probability(), scenario.windDirection());
+        FuelMap fuelMap = scenario.fuelMap();
+        // A cell is reached from its northern neighbour by the fire spreading south, and so on
+        double fromNorth = kernel.getProbability(Forest.WindDirection.SOUTH);
+        double fromSouth = kernel.getProbability(Forest.WindDirection.NORTH);
+        double fromWest = kernel.getProbability(Forest.WindDirection.EAST);
+        double fromEast = kernel.getProbability(Forest.WindDirection.WEST);
+
+        // The probability of each cell being untouched, burning for the first cycle and burning for the second cycle,
+        // and of catching fire during the current cycle
+        double[] untouched = new double[size];
+        double[] firstCycle = new double[size];
+        double[] secondCycle = new double[size];
+        double[] caught = new double[size];
+        Arrays.fill(untouched, 1.0);
+        int fire = scenario.fireI() * columns + scenario.fireJ();
+        untouched[fire] = 0;
+        firstCycle[fire] = 1;
+
+        // Starting the fire is the first cycle, like in the engines
+        int cycles = 1;
+        double burning = 1;
+        while (burning >= tolerance && cycles < maxCycles) {
+            burning = 0;
+            for (int i = 0; i < rows; i++) {
+                int rowStart = i * columns;
+                for (int j = 0; j < columns; j++) {
+                    int index = rowStart + j;
+                    double p = 0;
+                    if (untouched[index] > 0) {
+                        // The fuel scales every attempt to spread the fire to the cell, like in the engines
+                        double fuel = fuelMap == null ? 1 : fuelMap.getFuel(i, j) / (double) FuelMap.FULL_FUEL;
+                        // The probability that no burning neighbour spreads the fire to the cell
+                        double escapes = 1;
+                        if (i > 0) {
+                            escapes *= 1 - fromNorth * fuel * (firstCycle[index - columns] + secondCycle[index - columns]);
+                        }
+                        if (i < rows - 1) {
+                            escapes *= 1 - fromSouth * fuel * (firstCycle[index + columns] + secondCycle[index + columns]);
+                        }
+                        if (j > 0) {
+                            escapes *= 1 - fromWest * fuel * (firstCycle[index - 1] + secondCycle[index - 1]);
+                        }
+                        if (j < columns - 1) {
+                            escapes *= 1 - fromEast * fuel * (firstCycle[index + 1] + secondCycle[index + 1]);
+                        }
+                        p = untouched[index] * (1 - escapes);
+                        untouched[index] -= p;
+                    }
+                    caught[index] = p;
+                    burning += p + firstCycle[index];
+                }
+            }
+            // The cells burning for the second cycle are now scorched, so their array is reused for the next cycle
+            double[] scorched = secondCycle;
+            secondCycle = firstCycle;
+            firstCycle = caught;
+            caught = scorched;
+            cycles++;
+        }
+
+        // Every cell that is not untouched has burned, so the array is turned into the burn probabilities in place
+        for (int index = 0; index < size; index++) {
+            untouched[index] = 1 - untouched[index];
+        }
+        return new RiskMap(scenario, untouched, cycles);
+    }
+}
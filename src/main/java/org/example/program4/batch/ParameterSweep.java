@@ -0,0 +1,146 @@
+package org.example.program4.batch;
+
+import org.example.program4.engine.Forest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sweeps the fire probability from {@link #MIN_PROBABILITY} to {@link #MAX_PROBABILITY} for each wind direction,
+ * running an ensemble at each probability tried.
+ * <p>
+ * The sweep is adaptive. It starts with a few evenly spaced probabilities and then keeps splitting the interval
+ * where the burned fraction or the fraction of runs reaching the edge changes the most. Most of the runs are spent
+ * near the steep part of the curve, such as the percolation threshold, and few are spent where the curve is flat.
+ * <p>
+ * Every probability uses the same seed, so the differences between neighbouring points come from the probability
+ * and not from the luck of the runs.
+ */
+public class ParameterSweep {
+
+    /**
+     * The lowest fire probability swept, the same as the lowest value of the slider in the GUI.
+     */
+    public static final double MIN_PROBABILITY = 0.01;
+
+    /**
+     * The highest fire probability swept.
+     */
+    public static final double MAX_PROBABILITY = 1.0;
+
+    /**
+     * The number of evenly spaced probabilities tried before the sweep becomes adaptive.
+     */
+    private static final int INITIAL_POINTS = 5;
+
+    /**
+     * The narrowest interval that is still split.
+     */
+    private static final double MIN_INTERVAL = 0.001;
+
+    /**
+     * The runner the ensembles are run on.
+     */
+    private final EnsembleRunner runner;
+
+    /**
+     * The size of the grid that represents the forest.
+     */
+    private final int gridSize;
+
+    /**
+     * The number of runs at each probability tried.
+     */
+    private final int runsPerPoint;
+
+    /**
+     * The seed of the ensemble at each probability tried.
+     */
+    private final long seed;
+
+    /**
+     * Constructs a sweep over forests of the specified size where the fire starts in the center.
+     *
+     * @param runner       the runner the ensembles are run on
+     * @param gridSize     the size of the grid that represents the forest
+     * @param runsPerPoint the number of runs at each probability tried
+     * @param seed         the seed of the ensemble at each probability tried
+     */
+    public ParameterSweep(EnsembleRunner runner, int gridSize, int runsPerPoint, long seed) {
+        this.runner = runner;
+        this.gridSize = gridSize;
+        this.runsPerPoint = runsPerPoint;
+        this.seed = seed;
+    }
+
+    /**
+     * Sweeps the probability for every wind direction.
+     *
+     * @param maxPoints the number of probabilities tried for each wind direction
+     * @param minChange the change between neighbouring points below which an interval is not split
+     * @return the results of the sweep for each wind direction
+     */
+    public Map<Forest.WindDirection, SweepResult> sweepAll(int maxPoints, double minChange) {
+        Map<Forest.WindDirection, SweepResult> results = new EnumMap<>(Forest.WindDirection.class);
+        for (Forest.WindDirection windDirection : Forest.WindDirection.values()) {
+            results.put(windDirection, sweep(windDirection, maxPoints, minChange));
+        }
+        return results;
+    }
+
+    /**
+     * Sweeps the probability for one wind direction.
+     * The sweep stops after maxPoints probabilities, or earlier when no interval changes by more than minChange.
+     *
+     * @param windDirection the direction of the wind
+     * @param maxPoints     the number of probabilities tried
+     * @param minChange     the change between neighbouring points below which an interval is not split
+     * @return the result of the sweep
+     */
+    public SweepResult sweep(Forest.WindDirection windDirection, int maxPoints, double minChange) {
+        // The points are kept sorted by probability
+        List<SweepPoint> points = new ArrayList<>();
+        for (int k = 0; k < INITIAL_POINTS && k < maxPoints; k++) {
+            double probability = MIN_PROBABILITY + (MAX_PROBABILITY - MIN_PROBABILITY) * k / (INITIAL_POINTS - 1);
+            points.add(runPoint(probability, windDirection));
+        }
+
+        while (points.size() < maxPoints) {
+            // Find the interval with the largest change
+            int steepest = -1;
+            double largestChange = minChange;
+            for (int k = 0; k < points.size() - 1; k++) {
+                SweepPoint left = points.get(k);
+                SweepPoint right = points.get(k + 1);
+                double change = Math.max(Math.abs(right.burnedFraction() - left.burnedFraction()),
+                        Math.abs(right.edgeReachedFraction() - left.edgeReachedFraction()));
+                if (change > largestChange && right.probability() - left.probability() > MIN_INTERVAL) {
+                    steepest = k;
+                    largestChange = change;
+                }
+            }
+            if (steepest < 0) {
+                break;
+            }
+            // Split it in half
+            double middle = (points.get(steepest).probability() + points.get(steepest + 1).probability()) / 2;
+            points.add(steepest + 1, runPoint(middle, windDirection));
+        }
+        return new SweepResult(windDirection, points);
+    }
+
+    /**
+     * Runs the ensemble at one probability.
+     *
+     * @param probability   the fire probability
+     * @param windDirection the direction of the wind
+     * @return the measured point
+     */
+    private SweepPoint runPoint(double probability, Forest.WindDirection windDirection) {
+        EnsembleResult result = runner.run(Scenario.centered(gridSize, probability, windDirection, seed), runsPerPoint);
+        return new SweepPoint(probability, result.getBurnedFraction(), result.getEdgeReachedFraction(),
+                result.getCycles().getMean());
+    }
+}
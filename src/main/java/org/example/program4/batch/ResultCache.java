@@ -0,0 +1,284 @@
+package org.example.program4.batch;
+
+import org.example.program4.engine.Forest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the results of ensembles that were already run, so a repeated request for the same scenario and number of
+ * runs is answered without simulating it again. The results of an ensemble only depend on the scenario and the
+ * number of runs, so a cached result is exactly the result the runs would give.
+ * <p>
+ * Results are kept in memory, least recently used first out, until their estimated size exceeds a byte budget.
+ * If a directory is given, every result is also saved there as a compressed file, which outlives the memory tier
+ * and the process. Scenarios with a fuel map are never cached, since the map is not part of the key.
+ * <p>
+ * All methods are thread safe. The simulation runs outside the lock, so two threads missing the same scenario
+ * at the same time both simulate it. The results returned are shared, so runs must not be added to them.
+ */
+public class ResultCache {
+
+    /**
+     * The first 4 bytes of every cached file, "FFRC".
+     */
+    private static final int MAGIC = 0x46465243;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The runner that simulates the scenarios that are not cached.
+     */
+    private final EnsembleRunner runner;
+
+    /**
+     * The largest estimated number of bytes of the results kept in memory.
+     */
+    private final long maxBytes;
+
+    /**
+     * The directory the results are saved in, or null if they are only kept in memory.
+     */
+    private final Path directory;
+
+    /**
+     * The results kept in memory, from the least to the most recently used.
+     */
+    private final LinkedHashMap<Key, EnsembleResult> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The estimated number of bytes of the results kept in memory.
+     */
+    private long bytes;
+
+    /**
+     * The number of requests answered from memory.
+     */
+    private long memoryHits;
+
+    /**
+     * The number of requests answered from disk.
+     */
+    private long diskHits;
+
+    /**
+     * The number of requests that had to be simulated.
+     */
+    private long misses;
+
+    /**
+     * The number of results dropped from memory.
+     */
+    private long evictions;
+
+    /**
+     * Constructs a cache that only keeps results in memory.
+     *
+     * @param runner   the runner that simulates the scenarios that are not cached
+     * @param maxBytes the largest estimated number of bytes of the results kept in memory
+     */
+    public ResultCache(EnsembleRunner runner, long maxBytes) {
+        this(runner, maxBytes, null);
+    }
+
+    /**
+     * Constructs a cache that keeps results in memory and saves them in the specified directory.
+     *
+     * @param runner    the runner that simulates the scenarios that are not cached
+     * @param maxBytes  the largest estimated number of bytes of the results kept in memory
+     * @param directory the directory the results are saved in, which is created if needed, or null to only keep them in memory
+     */
+    public ResultCache(EnsembleRunner runner, long maxBytes, Path directory) {
+        this.runner = runner;
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the results of running the scenario the specified number of times, from memory or disk if they were
+     * cached and by running the ensemble otherwise.
+     *
+     * @param scenario the scenario to run
+     * @param runs     the number of runs
+     * @return the combined results of the runs
+     * @throws UncheckedIOException if a result cannot be saved to the directory
+     */
+    public EnsembleResult run(Scenario scenario, long runs) {
+        if (scenario.fuelMap() != null) {
+            synchronized (this) {
+                misses++;
+            }
+            return runner.run(scenario, runs);
+        }
+        Key key = Key.of(scenario, runs);
+        synchronized (this) {
+            EnsembleResult result = entries.get(key);
+            if (result != null) {
+                memoryHits++;
+                return result;
+            }
+        }
+
+        EnsembleResult result = directory == null ? null : load(key, scenario);
+        synchronized (this) {
+            if (result != null) {
+                diskHits++;
+            } else {
+                misses++;
+            }
+        }
+        if (result == null) {
+            result = runner.run(scenario, runs);
+            if (directory != null) {
+                save(key, result);
+            }
+        }
+        put(key, result);
+        return result;
+    }
+
+    /**
+     * Returns the hit and miss counts of the cache and how much it holds in memory.
+     *
+     * @return the statistics of the cache
+     */
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(memoryHits, diskHits, misses, evictions, entries.size(), bytes);
+    }
+
+    /**
+     * Drops every result kept in memory. The saved files are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Keeps a result in memory and drops the least recently used results until the cache is within its budget.
+     * A result larger than the whole budget is not kept.
+     *
+     * @param key    the key of the result
+     * @param result the result
+     */
+    private synchronized void put(Key key, EnsembleResult result) {
+        long size = result.estimateSize();
+        if (size > maxBytes) {
+            return;
+        }
+        EnsembleResult previous = entries.put(key, result);
+        if (previous != null) {
+            bytes -= previous.estimateSize();
+        }
+        bytes += size;
+        Iterator<EnsembleResult> leastRecentlyUsed = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= leastRecentlyUsed.next().estimateSize();
+            leastRecentlyUsed.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Reads a saved result.
+     *
+     * @param key      the key of the result
+     * @param scenario the scenario of the result
+     * @return the result, or null if it was not saved or the file cannot be read
+     */
+    private EnsembleResult load(Key key, Scenario scenario) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(directory.resolve(key.fileName())))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(key.toString())) {
+                return null;
+            }
+            return EnsembleResult.readFrom(scenario, in);
+        } catch (IOException e) {
+            // A missing or broken file is simulated again, and then saved again
+            return null;
+        }
+    }
+
+    /**
+     * Saves a result, replacing any existing file. The result is written next to the file first and then moved
+     * over it, so other processes sharing the directory never read a half-written result.
+     *
+     * @param key    the key of the result
+     * @param result the result
+     * @throws UncheckedIOException if the result cannot be saved
+     */
+    private void save(Key key, EnsembleResult result) {
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(key.fileName());
+            Path temporaryFile = Files.createTempFile(directory, key.fileName(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new GZIPOutputStream(Files.newOutputStream(temporaryFile))))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeUTF(key.toString());
+                    result.writeTo(out);
+                }
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("The result cannot be saved to " + directory, e);
+        }
+    }
+
+    /**
+     * Everything the results of an ensemble depend on.
+     *
+     * @param rows          the number of rows of the grid that represents the forest
+     * @param columns       the number of columns of the grid that represents the forest
+     * @param probability   the initial probability of the fire spreading to an adjacent cell
+     * @param windDirection the direction of the wind
+     * @param fireI         the x-coordinate of the cell the fire is started in
+     * @param fireJ         the y-coordinate of the cell the fire is started in
+     * @param seed          the seed the seeds of the runs are derived from
+     * @param runs          the number of runs
+     */
+    record Key(int rows, int columns, double probability, Forest.WindDirection windDirection,
+               int fireI, int fireJ, long seed, long runs) {
+
+        /**
+         * Returns the key of a scenario without a fuel map.
+         *
+         * @param scenario the scenario
+         * @param runs     the number of runs
+         * @return the key
+         */
+        static Key of(Scenario scenario, long runs) {
+            // Adding 0.0 turns -0.0 into 0.0, which gives the same runs but is not equal to it in a record
+            return new Key(scenario.rows(), scenario.columns(), scenario.probability() + 0.0, scenario.windDirection(),
+                    scenario.fireI(), scenario.fireJ(), scenario.seed(), runs);
+        }
+
+        /**
+         * Returns the name of the file the result is saved in, which is different for every key.
+         *
+         * @return the file name
+         */
+        String fileName() {
+            return rows + "x" + columns + "-p" + probability + "-" + windDirection + "-at" + fireI + "," + fireJ
+                    + "-seed" + seed + "-runs" + runs + ".ens.gz";
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.program4.batch;
+
+/**
+ * The probability of every cell of a scenario ever burning, worked out by a {@link MeanFieldSolver}.
+ */
+public class RiskMap {
+
+    /**
+     * The scenario the probabilities were worked out for.
+     */
+    private final Scenario scenario;
+
+    /**
+     * The probability of each cell burning, in row-major order.
+     */
+    private final double[] burnProbabilities;
+
+    /**
+     * The number of simulation cycles that were worked out.
+     */
+    private final int cycles;
+
+    /**
+     * Constructs a risk map.
+     *
+     * @param scenario          the scenario the probabilities were worked out for
+     * @param burnProbabilities the probability of each cell burning, in row-major order
+     * @param cycles            the number of simulation cycles that were worked out
+     */
+    RiskMap(Scenario scenario, double[] burnProbabilities, int cycles) {
+        this.scenario = scenario;
+        this.burnProbabilities = burnProbabilities;
+        this.cycles = cycles;
+    }
+
+    /**
+     * Returns the scenario the probabilities were worked out for.
+     *
+     * @return the scenario
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Returns the probability of the specified cell burning, the counterpart of {@link EnsembleResult#getBurnFrequency}.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the burn probability of the cell between 0.0 and 1.0
+     */
+    public double getBurnProbability(int i, int j) {
+        return burnProbabilities[i * scenario.columns() + j];
+    }
+
+    /**
+     * Returns the expected fraction of the forest that burns.
+     *
+     * @return the expected burned fraction between 0.0 and 1.0
+     */
+    public double getBurnedFraction() {
+        double burned = 0;
+        for (double probability : burnProbabilities) {
+            burned += probability;
+        }
+        return burned / burnProbabilities.length;
+    }
+
+    /**
+     * Returns the number of simulation cycles that were worked out before the fire was taken to have gone out,
+     * counting the cycle the fire was started in.
+     *
+     * @return the number of simulation cycles
+     */
+    public int getCycles() {
+        return cycles;
+    }
+}
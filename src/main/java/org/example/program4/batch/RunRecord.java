@@ -0,0 +1,13 @@
+package org.example.program4.batch;
+
+/**
+ * The result of a single run of a scenario.
+ *
+ * @param run          the number of the run within the scenario
+ * @param seed         the seed the run was simulated with
+ * @param cycles       the number of simulation cycles it took for the fire to go out
+ * @param burnedCells  the number of cells that burned
+ * @param maxFrontier  the largest number of cells that were burning at the same time, or -1 if the engine does not count them
+ */
+public record RunRecord(long run, long seed, int cycles, long burnedCells, long maxFrontier) {
+}
@@ -0,0 +1,152 @@
+package org.example.program4.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Streams one row per run to a channel, either as comma-separated values or as fixed-width binary records.
+ * The rows are collected in a direct buffer and written to the channel whenever it fills up,
+ * so a million runs take a few hundred writes. All methods are thread safe.
+ * <p>
+ * The CSV format starts with the header {@code run,seed,cycles,burned_cells,max_frontier}.
+ * The binary format has no header; each run is {@value #BINARY_RECORD_SIZE} little-endian bytes:
+ * the run and the seed as 8-byte integers, the cycles as a 4-byte integer, and the burned cells and
+ * the max frontier as 8-byte integers.
+ */
+public class RunResultWriter implements Closeable {
+
+    /**
+     * The formats the rows can be written in.
+     */
+    public enum Format {
+        CSV, BINARY
+    }
+
+    /**
+     * The number of bytes of each run in the binary format.
+     */
+    public static final int BINARY_RECORD_SIZE = 36;
+
+    /**
+     * The header of the CSV format.
+     */
+    private static final String CSV_HEADER = "run,seed,cycles,burned_cells,max_frontier\n";
+
+    /**
+     * The size of the buffer the rows are collected in.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The channel the rows are written to.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * The format the rows are written in.
+     */
+    private final Format format;
+
+    /**
+     * The rows that have not been written to the channel yet.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * The text of the CSV row being written, reused for every row.
+     */
+    private final StringBuilder row = new StringBuilder();
+
+    /**
+     * Constructs a writer that streams rows to the specified channel. The CSV header is written right away.
+     *
+     * @param channel the channel the rows are written to
+     * @param format  the format the rows are written in
+     * @throws IOException if the header cannot be written
+     */
+    public RunResultWriter(WritableByteChannel channel, Format format) throws IOException {
+        this.channel = channel;
+        this.format = format;
+        if (format == Format.CSV) {
+            putAscii(CSV_HEADER);
+        }
+    }
+
+    /**
+     * Adds the row of a run. The row reaches the channel once the buffer is full or the writer is flushed.
+     *
+     * @param record the result of the run
+     * @throws IOException if the channel cannot be written
+     */
+    public synchronized void write(RunRecord record) throws IOException {
+        if (format == Format.BINARY) {
+            if (buffer.remaining() < BINARY_RECORD_SIZE) {
+                drain();
+            }
+            buffer.putLong(record.run())
+                    .putLong(record.seed())
+                    .putInt(record.cycles())
+                    .putLong(record.burnedCells())
+                    .putLong(record.maxFrontier());
+        } else {
+            row.setLength(0);
+            row.append(record.run()).append(',')
+                    .append(record.seed()).append(',')
+                    .append(record.cycles()).append(',')
+                    .append(record.burnedCells()).append(',')
+                    .append(record.maxFrontier()).append('\n');
+            putAscii(row);
+        }
+    }
+
+    /**
+     * Writes the rows that are still in the buffer to the channel.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Writes the rows that are still in the buffer and closes the channel.
+     *
+     * @throws IOException if the channel cannot be written or closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        drain();
+        channel.close();
+    }
+
+    /**
+     * Adds text that only holds ASCII characters, such as digits and commas, to the buffer.
+     *
+     * @param text the text
+     * @throws IOException if the buffer is full and cannot be written to the channel
+     */
+    private void putAscii(CharSequence text) throws IOException {
+        if (buffer.remaining() < text.length()) {
+            drain();
+        }
+        for (int k = 0; k < text.length(); k++) {
+            buffer.put((byte) text.charAt(k));
+        }
+    }
+
+    /**
+     * Writes the whole buffer to the channel and empties it.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.program4.batch;
+
+import org.example.program4.engine.Forest;
+import org.example.program4.engine.FrontierForest;
+import org.example.program4.engine.FuelMap;
+import org.example.program4.engine.IgnitionRandom;
+import org.example.program4.engine.MappedForest;
+import org.example.program4.engine.SimulationEngine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The settings of a forest fire simulation that is run many times.
+ * Every run uses its own seed derived from the seed of the scenario, so the runs are independent
+ * but a scenario always gives the same results.
+ *
+ * @param rows          the number of rows of the grid that represents the forest
+ * @param columns       the number of columns of the grid that represents the forest
+ * @param probability   the initial probability of the fire spreading to an adjacent cell
+ * @param windDirection the direction of the wind
+ * @param fireI         the x-coordinate of the cell the fire is started in
+ * @param fireJ         the y-coordinate of the cell the fire is started in
+ * @param seed          the seed the seeds of the runs are derived from
+ * @param fuelMap       the fuel of every cell, or null if every cell has full fuel
+ */
+public record Scenario(int rows, int columns, double probability, Forest.WindDirection windDirection,
+                       int fireI, int fireJ, long seed, FuelMap fuelMap) {
+
+    /**
+     * Creates a scenario for a square forest where the fire starts in the center of the forest, like in the GUI.
+     *
+     * @param gridSize      the size of the grid that represents the forest
+     * @param probability   the initial probability of the fire spreading to an adjacent cell
+     * @param windDirection the direction of the wind
+     * @param seed          the seed the seeds of the runs are derived from
+     * @return the scenario
+     */
+    public static Scenario centered(int gridSize, double probability, Forest.WindDirection windDirection, long seed) {
+        return centered(gridSize, gridSize, probability, windDirection, seed);
+    }
+
+    /**
+     * Creates a scenario for a rectangular forest where the fire starts in the center of the forest.
+     *
+     * @param rows          the number of rows of the grid that represents the forest
+     * @param columns       the number of columns of the grid that represents the forest
+     * @param probability   the initial probability of the fire spreading to an adjacent cell
+     * @param windDirection the direction of the wind
+     * @param seed          the seed the seeds of the runs are derived from
+     * @return the scenario
+     */
+    public static Scenario centered(int rows, int columns, double probability, Forest.WindDirection windDirection, long seed) {
+        return new Scenario(rows, columns, probability, windDirection, rows / 2, columns / 2, seed, null);
+    }
+
+    /**
+     * Returns a copy of this scenario where the cells have the fuel of the specified map.
+     *
+     * @param fuelMap the fuel of every cell, with the same number of rows and columns as the scenario
+     * @return the scenario with the fuel map
+     */
+    public Scenario withFuelMap(FuelMap fuelMap) {
+        return new Scenario(rows, columns, probability, windDirection, fireI, fireJ, seed, fuelMap);
+    }
+
+    /**
+     * Returns the seed the specified run is simulated with.
+     *
+     * @param run the index of the run
+     * @return the seed of the run
+     */
+    public long getRunSeed(long run) {
+        return IgnitionRandom.deriveSeed(seed, run);
+    }
+
+    /**
+     * Creates the engine for the specified run with the fire already started.
+     * Forests with more cells than fit in an array are stored in a temporary file by a {@link MappedForest},
+     * which must be closed once the run is done.
+     *
+     * @param run the index of the run
+     * @return the engine for the run
+     * @throws UncheckedIOException if the temporary file of a large forest cannot be created
+     */
+    public SimulationEngine createEngine(long run) {
+        SimulationEngine engine = isLarge() ? createMappedForest(run) : new FrontierForest(rows, columns, getRunSeed(run));
+        engine.setSpreadParameters(probability, windDirection);
+        if (fuelMap != null) {
+            engine.setFuelMap(fuelMap);
+        }
+        engine.startFire(fireI, fireJ);
+        return engine;
+    }
+
+    /**
+     * Checks if the forest has more cells than fit in an array, so its cells have to be stored in a file.
+     *
+     * @return true if the forest has more than {@link Integer#MAX_VALUE} cells
+     */
+    public boolean isLarge() {
+        return (long) rows * columns > Integer.MAX_VALUE;
+    }
+
+    /**
+     * Creates a forest for the specified run whose cells are stored in a temporary file.
+     *
+     * @param run the index of the run
+     * @return the forest
+     * @throws UncheckedIOException if the temporary file cannot be created
+     */
+    private MappedForest createMappedForest(long run) {
+        try {
+            return new MappedForest(rows, columns, getRunSeed(run));
+        } catch (IOException e) {
+            throw new UncheckedIOException("The cells of a " + rows + " x " + columns + " forest cannot be stored in a temporary file", e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.program4.batch;
+
+/**
+ * The measurements of an ensemble at one fire probability of a parameter sweep.
+ *
+ * @param probability         the fire probability
+ * @param burnedFraction      the average fraction of the forest that burned
+ * @param edgeReachedFraction the fraction of runs in which the fire reached the edge of the grid
+ * @param meanCycles          the average number of simulation cycles it took for the fire to go out
+ */
+public record SweepPoint(double probability, double burnedFraction, double edgeReachedFraction, double meanCycles) {
+}
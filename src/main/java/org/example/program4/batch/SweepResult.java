@@ -0,0 +1,53 @@
+package org.example.program4.batch;
+
+import org.example.program4.engine.Forest;
+
+import java.util.List;
+
+/**
+ * The points measured by a parameter sweep for one wind direction, sorted by probability.
+ *
+ * @param windDirection the direction of the wind
+ * @param points        the measured points, sorted by probability
+ */
+public record SweepResult(Forest.WindDirection windDirection, List<SweepPoint> points) {
+
+    /**
+     * Constructs a result with an unmodifiable copy of the points.
+     *
+     * @param windDirection the direction of the wind
+     * @param points        the measured points, sorted by probability
+     */
+    public SweepResult {
+        points = List.copyOf(points);
+    }
+
+    /**
+     * Estimates the percolation threshold: the probability at which the fire reaches the edge of the grid in half of the runs.
+     * The estimate interpolates linearly between the two points on either side of one half.
+     *
+     * @return the estimated threshold, or NaN if the fire never crosses one half within the swept range
+     */
+    public double estimateThreshold() {
+        return estimateThreshold(0.5);
+    }
+
+    /**
+     * Estimates the probability at which the fire reaches the edge of the grid in the specified fraction of the runs.
+     * The estimate interpolates linearly between the two points on either side of the level.
+     *
+     * @param level the fraction of runs between 0.0 and 1.0
+     * @return the estimated probability, or NaN if the level is not crossed within the swept range
+     */
+    public double estimateThreshold(double level) {
+        for (int k = 0; k < points.size() - 1; k++) {
+            SweepPoint left = points.get(k);
+            SweepPoint right = points.get(k + 1);
+            if (left.edgeReachedFraction() < level && right.edgeReachedFraction() >= level) {
+                double t = (level - left.edgeReachedFraction()) / (right.edgeReachedFraction() - left.edgeReachedFraction());
+                return left.probability() + t * (right.probability() - left.probability());
+            }
+        }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,286 @@
+package org.example.program4.engine;
+
+import java.util.Arrays;
+
+/**
+ * A forest that stores each state as a bit plane, with 64 cells packed into every long.
+ * Each row of the grid starts on a new long, so a row takes (columns + 63) / 64 longs.
+ * <p>
+ * Instead of calling burnAdjacent on every burning cell, a simulation cycle shifts the burning planes
+ * one cell north, south, west and east and masks them with the untouched plane. This finds the cells that can
+ * catch fire 64 at a time. A random number is still drawn for every candidate, and aging burning cells
+ * to scorched is done a whole long at a time. The candidates of a long are decided by {@link CandidateIgnition},
+ * which draws and compares a whole vector of random numbers at a time when the Vector API is available.
+ * <p>
+ * Each cell next to a burning cell gets one attempt per burning neighbour, just like in {@link Forest}.
+ * The attempts are made direction by direction instead of cell by cell, but every attempt draws its number
+ * from {@link IgnitionRandom}, so a seed gives the same grid as the other engines.
+ */
+public class BitboardForest implements SimulationEngine {
+
+    /**
+     * The number of rows of the grid that represents the forest.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the grid that represents the forest.
+     */
+    private final int columns;
+
+    /**
+     * The number of longs used for each row of the grid.
+     */
+    private final int wordsPerRow;
+
+    /**
+     * The bit plane of the cells that are untouched.
+     */
+    private final long[] untouched;
+
+    /**
+     * The bit plane of the cells that caught fire during the last simulation cycle.
+     */
+    private long[] burningNew;
+
+    /**
+     * The bit plane of the cells that have been burning for one simulation cycle.
+     */
+    private long[] burningOld;
+
+    /**
+     * The bit plane of the cells that catch fire during the current simulation cycle.
+     * Swapped with the other burning planes at the end of every cycle so no planes are allocated while stepping.
+     */
+    private long[] ignited;
+
+    /**
+     * A random number source used for determining whether a cell catches fire.
+     */
+    private final IgnitionRandom random;
+
+    /**
+     * The probabilities of the fire spreading in each direction.
+     */
+    private SpreadKernel kernel = new SpreadKernel(0.3, Forest.WindDirection.NORTH);
+
+    /**
+     * The number of simulation cycles.
+     */
+    private int simulationCycles;
+
+    /**
+     * The number of cells in each state, updated at the end of every simulation cycle.
+     */
+    private final StateCounts counts;
+
+    /**
+     * Constructs a new BitboardForest with the specified grid size where every cell is untouched.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     */
+    public BitboardForest(int gridSize) {
+        this(gridSize, gridSize, new IgnitionRandom());
+    }
+
+    /**
+     * Constructs a new BitboardForest with the specified grid size where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     * @param seed     the seed that every random number is derived from
+     */
+    public BitboardForest(int gridSize, long seed) {
+        this(gridSize, gridSize, seed);
+    }
+
+    /**
+     * Constructs a new rectangular BitboardForest with the specified number of rows and columns where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param seed    the seed that every random number is derived from
+     */
+    public BitboardForest(int rows, int columns, long seed) {
+        this(rows, columns, new IgnitionRandom(seed));
+    }
+
+    /**
+     * Constructs a new BitboardForest with the specified number of rows and columns and random number source.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param random  the random number source used for determining whether a cell catches fire
+     */
+    private BitboardForest(int rows, int columns, IgnitionRandom random) {
+        this.rows = rows;
+        this.columns = columns;
+        this.random = random;
+        this.wordsPerRow = (columns + 63) >>> 6;
+        int words = Math.multiplyExact(rows, wordsPerRow);
+        this.untouched = new long[words];
+        this.burningNew = new long[words];
+        this.burningOld = new long[words];
+        this.ignited = new long[words];
+        this.counts = new StateCounts((long) rows * columns);
+
+        // Set every cell inside the grid to untouched, leaving the padding bits at the end of each row clear
+        long lastWordMask = (columns & 63) == 0 ? -1L : (1L << (columns & 63)) - 1;
+        for (int i = 0; i < rows; i++) {
+            int rowStart = i * wordsPerRow;
+            for (int w = 0; w < wordsPerRow - 1; w++) {
+                untouched[rowStart + w] = -1L;
+            }
+            untouched[rowStart + wordsPerRow - 1] = lastWordMask;
+        }
+    }
+
+    @Override
+    public ForestCell.State getState(int i, int j) {
+        int word = i * wordsPerRow + (j >>> 6);
+        long bit = 1L << j;
+        if ((untouched[word] & bit) != 0) {
+            return ForestCell.State.UNTOUCHED;
+        }
+        if (((burningNew[word] | burningOld[word]) & bit) != 0) {
+            return ForestCell.State.BURNING;
+        }
+        return ForestCell.State.SCORCHED;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int getSimulationCycles() {
+        return simulationCycles;
+    }
+
+    @Override
+    public void setSpreadKernel(SpreadKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void startFire(int i, int j) {
+        int word = i * wordsPerRow + (j >>> 6);
+        long bit = 1L << j;
+        if ((untouched[word] & bit) != 0) {
+            counts.move(PackedForest.UNTOUCHED, PackedForest.BURNING);
+        }
+        untouched[word] &= ~bit;
+        burningNew[word] |= bit;
+        // This is the first cycle of the simulation
+        simulationCycles = 1;
+    }
+
+    @Override
+    public boolean step() {
+        long north = kernel.getThreshold(Forest.WindDirection.NORTH);
+        long south = kernel.getThreshold(Forest.WindDirection.SOUTH);
+        long west = kernel.getThreshold(Forest.WindDirection.WEST);
+        long east = kernel.getThreshold(Forest.WindDirection.EAST);
+        long cycleKey = random.cycleKey(simulationCycles);
+
+        // Try every direction on each long. The untouched plane is updated as cells catch fire,
+        // so a cell that caught fire from one direction is not tried again from the next one
+        for (int i = 0; i < rows; i++) {
+            int rowStart = i * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                int word = rowStart + w;
+                // The index of the first cell of the long in row-major order
+                long firstCell = (long) i * columns + (w << 6);
+                // The fire spreads north from the row below
+                if (i < rows - 1) {
+                    igniteCandidates(word, burning(word + wordsPerRow), cycleKey, firstCell, Forest.WindDirection.NORTH, north);
+                }
+                // The fire spreads south from the row above
+                if (i > 0) {
+                    igniteCandidates(word, burning(word - wordsPerRow), cycleKey, firstCell, Forest.WindDirection.SOUTH, south);
+                }
+                // The fire spreads west from the cell to the east, which may be in the next long
+                long fromEast = burning(word) >>> 1;
+                if (w < wordsPerRow - 1) {
+                    fromEast |= burning(word + 1) << 63;
+                }
+                igniteCandidates(word, fromEast, cycleKey, firstCell, Forest.WindDirection.WEST, west);
+                // The fire spreads east from the cell to the west, which may be in the previous long
+                long fromWest = burning(word) << 1;
+                if (w > 0) {
+                    fromWest |= burning(word - 1) >>> 63;
+                }
+                igniteCandidates(word, fromWest, cycleKey, firstCell, Forest.WindDirection.EAST, east);
+            }
+        }
+
+        // Count the cells that caught fire and the cells that have burned for two cycles
+        long ignitions = 0;
+        long scorches = 0;
+        for (int word = 0; word < untouched.length; word++) {
+            ignitions += Long.bitCount(ignited[word]);
+            scorches += Long.bitCount(burningOld[word]);
+        }
+        counts.move(PackedForest.UNTOUCHED, PackedForest.BURNING, ignitions);
+        counts.move(PackedForest.BURNING, PackedForest.SCORCHED, scorches);
+
+        // Age the burning cells: cells burning for two cycles become scorched, which means they are simply dropped
+        long[] scorched = burningOld;
+        burningOld = burningNew;
+        burningNew = ignited;
+        ignited = scorched;
+        Arrays.fill(ignited, 0L);
+
+        simulationCycles++;
+        return isStillBurning();
+    }
+
+    /**
+     * Returns the cells in the specified long that were burning at the start of the simulation cycle.
+     *
+     * @param word the index of the long
+     * @return the burning cells in the long
+     */
+    private long burning(int word) {
+        return burningNew[word] | burningOld[word];
+    }
+
+    /**
+     * Attempts to set every untouched cell in the specified long that has a burning neighbour on fire.
+     *
+     * @param word                the index of the long
+     * @param burningNeighbours   the cells in the long that have a burning neighbour in the direction being tried
+     * @param cycleKey            the key of the current simulation cycle in the random number source
+     * @param firstCell           the index of the first cell of the long in row-major order
+     * @param direction           the direction the fire spreads in
+     * @param threshold           the cut-off of the adjusted probability of the fire spreading in that direction
+     */
+    private void igniteCandidates(int word, long burningNeighbours, long cycleKey, long firstCell,
+                                  Forest.WindDirection direction, long threshold) {
+        long caught = CandidateIgnition.ignite(burningNeighbours & untouched[word], cycleKey, firstCell, direction, threshold);
+        untouched[word] &= ~caught;
+        ignited[word] |= caught;
+    }
+
+    @Override
+    public boolean isStillBurning() {
+        return counts.anyBurning();
+    }
+
+    @Override
+    public long getBurningCount() {
+        return counts.get(ForestCell.State.BURNING);
+    }
+
+    @Override
+    public long getStateCount(ForestCell.State state) {
+        return counts.get(state);
+    }
+}
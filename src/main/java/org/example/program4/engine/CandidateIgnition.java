@@ -0,0 +1,74 @@
+package org.example.program4.engine;
+
+/**
+ * Decides which cells of a 64-cell word catch fire, for engines that keep their cells as bitboards.
+ * <p>
+ * Each candidate cell draws its random number from {@link IgnitionRandom#nextLong} and catches fire if it is below
+ * the threshold of the direction, exactly like in the other engines. When the JVM is started with
+ * {@code --add-modules jdk.incubator.vector} and the CPU has wide vectors, words with many candidates are decided
+ * a full vector at a time by {@link VectorIgnition}; otherwise, or with {@code -Dprogram4.vectorIgnition=false},
+ * every candidate is decided on its own. Both give the same cells.
+ */
+final class CandidateIgnition {
+
+    /**
+     * Whether the vector path is used, decided once when the class is loaded.
+     */
+    static final boolean VECTORIZED = isVectorAvailable();
+
+    /**
+     * The smallest number of candidates in a word that is decided with vectors, or more than a word holds if
+     * the vector path is not used.
+     */
+    private static final int MIN_VECTOR_CANDIDATES = VECTORIZED ? VectorIgnition.MIN_CANDIDATES : Long.SIZE + 1;
+
+    /**
+     * Not instantiable.
+     */
+    private CandidateIgnition() {
+    }
+
+    /**
+     * Decides which of the candidate cells of a word catch fire.
+     *
+     * @param candidates the bits of the cells that can catch fire from the specified direction
+     * @param cycleKey   the key of the current simulation cycle in the random number source
+     * @param firstCell  the index of the cell of bit 0 in row-major order
+     * @param direction  the direction the fire spreads in to reach the cells
+     * @param threshold  the cut-off of the adjusted probability of the fire spreading in that direction
+     * @return the bits of the cells that catch fire
+     */
+    static long ignite(long candidates, long cycleKey, long firstCell, Forest.WindDirection direction, long threshold) {
+        if (Long.bitCount(candidates) >= MIN_VECTOR_CANDIDATES) {
+            return VectorIgnition.ignite(candidates, cycleKey, firstCell, direction, threshold);
+        }
+        long caught = 0;
+        while (candidates != 0) {
+            int bit = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            if (SpreadKernel.ignites(IgnitionRandom.nextLong(cycleKey, firstCell + bit, direction), threshold)) {
+                caught |= 1L << bit;
+            }
+        }
+        return caught;
+    }
+
+    /**
+     * Checks if the vector module is loaded, the vector path is not turned off, and the CPU has wide enough vectors.
+     * {@link VectorIgnition} is only loaded once the module is known to be there.
+     *
+     * @return true if the vector path can be used
+     */
+    private static boolean isVectorAvailable() {
+        if (!Boolean.parseBoolean(System.getProperty("program4.vectorIgnition", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorIgnition.isUseful();
+        } catch (LinkageError e) {
+            // The module is there but cannot be used, so keep deciding one cell at a time
+            return false;
+        }
+    }
+}
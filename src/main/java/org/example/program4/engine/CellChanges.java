@@ -0,0 +1,60 @@
+package org.example.program4.engine;
+
+import java.util.Arrays;
+
+/**
+ * The indices, in row-major order, of the cells whose state changed during the last simulation cycle.
+ * A view only has to repaint these cells instead of the whole forest.
+ * The list is reused by the engine, so it is only valid until the next cycle.
+ * Engines outside this package, such as a replay of a recorded run, fill the list with {@link #add} and {@link #clear}.
+ */
+public class CellChanges {
+
+    /**
+     * The indices of the changed cells.
+     */
+    private int[] indices = new int[16];
+
+    /**
+     * The number of changed cells.
+     */
+    private int size;
+
+    /**
+     * Returns the number of changed cells.
+     *
+     * @return the number of changed cells
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of a changed cell in row-major order.
+     *
+     * @param k the position of the change in the list, from 0 to size() - 1
+     * @return the index of the cell
+     */
+    public int getIndex(int k) {
+        return indices[k];
+    }
+
+    /**
+     * Adds a changed cell to the list.
+     *
+     * @param index the index of the cell in row-major order
+     */
+    public void add(int index) {
+        if (size == indices.length) {
+            indices = Arrays.copyOf(indices, size * 2);
+        }
+        indices[size++] = index;
+    }
+
+    /**
+     * Empties the list.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
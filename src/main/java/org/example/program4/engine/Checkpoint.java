@@ -0,0 +1,398 @@
+package org.example.program4.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A snapshot of a running simulation saved to a file, so the simulation can be resumed later by another process,
+ * either headless or in the GUI.
+ * <p>
+ * The file holds everything the engine needs to continue exactly where it stopped: the packed cells with their
+ * burn durations, the number of simulation cycles, the seed of the random number source, the spread parameters and
+ * the frontier of burning cells. The random numbers only depend on the seed, the cycle and the cell, so the seed and
+ * the number of cycles are the position of the random number source, and a restored forest burns exactly like the
+ * forest that was saved.
+ * <p>
+ * The file starts with a header of {@value #HEADER_SIZE} bytes, followed by the packed cells in row-major order
+ * and then the frontier as 8-byte indices. The cells and the frontier are written and read through memory-mapped
+ * windows of the file, so a checkpoint of a forest with billions of cells is copied by the operating system
+ * without passing through the heap in small pieces.
+ * <p>
+ * Checkpoints can be taken of a {@link PackedForest}, a {@link FrontierForest} and a {@link MappedForest},
+ * which all store their cells in the same packed format. The fuel map is not part of the file, so checkpoints
+ * cannot be taken of a forest with a fuel map, which would burn differently once restored without it.
+ */
+public final class Checkpoint {
+
+    /**
+     * The version of the checkpoint format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The first 4 bytes of every checkpoint, "FFCK".
+     */
+    private static final int MAGIC = 0x4646434B;
+
+    /**
+     * The number of bytes before the first cell.
+     */
+    static final int HEADER_SIZE = 64;
+
+    /**
+     * The largest number of bytes mapped at once.
+     */
+    private static final int WINDOW_SIZE = 1 << 30;
+
+    /**
+     * The kind of engine a checkpoint was taken of, which is also the kind of engine it is restored to.
+     */
+    public enum EngineKind {
+        PACKED, FRONTIER, MAPPED
+    }
+
+    /**
+     * The file the checkpoint is stored in.
+     */
+    private final Path file;
+
+    /**
+     * The kind of engine the checkpoint was taken of.
+     */
+    private final EngineKind kind;
+
+    /**
+     * The number of rows of the grid that represents the forest.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the grid that represents the forest.
+     */
+    private final int columns;
+
+    /**
+     * The number of simulation cycles when the checkpoint was taken.
+     */
+    private final int simulationCycles;
+
+    /**
+     * The seed that every random number is derived from.
+     */
+    private final long seed;
+
+    /**
+     * The initial probability of the fire spreading to an adjacent cell.
+     */
+    private final double probability;
+
+    /**
+     * The direction of the wind.
+     */
+    private final Forest.WindDirection windDirection;
+
+    /**
+     * Whether any cell was burning when the checkpoint was taken.
+     */
+    private final boolean stillBurning;
+
+    /**
+     * The number of cells on the frontier, or 0 for an engine without a frontier.
+     */
+    private final int frontierSize;
+
+    /**
+     * Constructs a checkpoint from the header of its file.
+     *
+     * @param file   the file the checkpoint is stored in
+     * @param header the header of the file
+     * @throws IOException if the file is not a checkpoint, has a different version or its header is corrupt
+     */
+    private Checkpoint(Path file, ByteBuffer header) throws IOException {
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a forest fire checkpoint: " + file);
+        }
+        int version = header.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version + ": " + file);
+        }
+        this.file = file;
+        this.kind = valueOf(EngineKind.values(), header.getInt(8), "engine kind", file);
+        this.rows = header.getInt(12);
+        this.columns = header.getInt(16);
+        this.simulationCycles = header.getInt(20);
+        this.seed = header.getLong(24);
+        this.probability = header.getDouble(32);
+        this.windDirection = valueOf(Forest.WindDirection.values(), header.getInt(40), "wind direction", file);
+        this.stillBurning = header.getInt(44) != 0;
+        this.frontierSize = header.getInt(48);
+        if (rows <= 0 || columns <= 0 || (kind != EngineKind.MAPPED && (long) rows * columns > Integer.MAX_VALUE)) {
+            throw new IOException("Corrupt checkpoint with a forest of " + rows + " x " + columns + " cells: " + file);
+        }
+        if (simulationCycles < 0 || frontierSize < 0) {
+            throw new IOException("Corrupt checkpoint with " + simulationCycles + " cycles and " + frontierSize
+                    + " cells on the frontier: " + file);
+        }
+    }
+
+    /**
+     * Returns the constant with the specified ordinal read from the header of a checkpoint.
+     *
+     * @param values  the constants of the enum
+     * @param ordinal the ordinal read from the header
+     * @param name    the name of the value, for the message of the exception
+     * @param file    the file the checkpoint is stored in
+     * @param <E>     the type of the enum
+     * @return the constant
+     * @throws IOException if there is no constant with the ordinal
+     */
+    private static <E extends Enum<E>> E valueOf(E[] values, int ordinal, String name, Path file) throws IOException {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Corrupt checkpoint with " + name + " " + ordinal + ": " + file);
+        }
+        return values[ordinal];
+    }
+
+    /**
+     * Saves the state of an engine to a file, replacing any existing file.
+     * The checkpoint is written next to the file first and then moved over it, so a crash while saving never
+     * leaves a broken checkpoint behind. The engine must not be stepped while it is saved.
+     *
+     * @param engine the engine to save
+     * @param file   the file to save the checkpoint to
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the engine cannot be checkpointed or has a fuel map
+     */
+    public static void write(SimulationEngine engine, Path file) throws IOException {
+        EngineKind kind;
+        SpreadKernel kernel;
+        long seed;
+        boolean stillBurning;
+        long[] frontier;
+        int frontierSize;
+        if (engine instanceof MappedForest mapped) {
+            kind = EngineKind.MAPPED;
+            kernel = mapped.getSpreadKernel();
+            seed = mapped.getSeed();
+            stillBurning = mapped.isStillBurning();
+            frontier = mapped.getFrontier();
+            frontierSize = mapped.getFrontierSize();
+        } else if (engine instanceof PackedForest packed && (engine.getClass() == PackedForest.class || engine.getClass() == FrontierForest.class)) {
+            if (packed.fuelMap != null) {
+                throw new IllegalArgumentException("Checkpoints cannot be taken of a forest with a fuel map");
+            }
+            kernel = packed.kernel;
+            seed = packed.random.getSeed();
+            stillBurning = packed.isStillBurning();
+            if (packed instanceof FrontierForest frontierForest) {
+                kind = EngineKind.FRONTIER;
+                frontierSize = frontierForest.getFrontierSize();
+                frontier = new long[frontierSize];
+                int[] indices = frontierForest.getFrontier();
+                for (int k = 0; k < frontierSize; k++) {
+                    frontier[k] = indices[k];
+                }
+            } else {
+                kind = EngineKind.PACKED;
+                frontier = new long[0];
+                frontierSize = 0;
+            }
+        } else {
+            throw new IllegalArgumentException("Checkpoints cannot be taken of a " + engine.getClass().getSimpleName());
+        }
+
+        long cellCount = (long) engine.getRows() * engine.getColumns();
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, kind.ordinal());
+            header.putInt(12, engine.getRows());
+            header.putInt(16, engine.getColumns());
+            header.putInt(20, engine.getSimulationCycles());
+            header.putLong(24, seed);
+            header.putDouble(32, kernel.getProbability());
+            header.putInt(40, kernel.getWindDirection().ordinal());
+            header.putInt(44, stillBurning ? 1 : 0);
+            header.putInt(48, frontierSize);
+            channel.write(header, 0);
+
+            // Copy the cells, then the frontier behind them
+            if (engine instanceof MappedForest mapped) {
+                mapped.getCells().copyTo(channel, HEADER_SIZE);
+            } else {
+                byte[] cells = ((PackedForest) engine).cells;
+                for (int offset = 0; offset < cells.length; offset += WINDOW_SIZE) {
+                    int length = Math.min(WINDOW_SIZE, cells.length - offset);
+                    channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + offset, length).put(cells, offset, length);
+                }
+            }
+            long frontierPosition = HEADER_SIZE + cellCount;
+            for (int offset = 0; offset < frontierSize; offset += WINDOW_SIZE / Long.BYTES) {
+                int length = Math.min(WINDOW_SIZE / Long.BYTES, frontierSize - offset);
+                channel.map(FileChannel.MapMode.READ_WRITE, frontierPosition + (long) offset * Long.BYTES, (long) length * Long.BYTES)
+                        .asLongBuffer().put(frontier, offset, length);
+            }
+            channel.force(true);
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the header of a checkpoint. The cells are only read when the checkpoint is restored.
+     *
+     * @param file the file the checkpoint is stored in
+     * @return the checkpoint
+     * @throws IOException if the file cannot be read, is not a checkpoint, has a different version or its header is corrupt
+     */
+    public static Checkpoint read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+            if (header.hasRemaining()) {
+                throw new IOException("Not a forest fire checkpoint: " + file);
+            }
+            return new Checkpoint(file, header);
+        }
+    }
+
+    /**
+     * Restores the engine the checkpoint was taken of. The restored engine continues with the next simulation cycle
+     * exactly like the saved engine would have. A {@link MappedForest} is restored into a temporary file.
+     *
+     * @return the restored engine
+     * @throws IOException if the checkpoint cannot be read
+     */
+    public SimulationEngine restore() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long frontierPosition = HEADER_SIZE + (long) rows * columns;
+            if (channel.size() < frontierPosition + (long) frontierSize * Long.BYTES) {
+                throw new IOException("The checkpoint is incomplete: " + file);
+            }
+            long[] frontier = new long[frontierSize];
+            for (int offset = 0; offset < frontierSize; offset += WINDOW_SIZE / Long.BYTES) {
+                int length = Math.min(WINDOW_SIZE / Long.BYTES, frontierSize - offset);
+                LongBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        frontierPosition + (long) offset * Long.BYTES, (long) length * Long.BYTES).asLongBuffer();
+                window.get(frontier, offset, length);
+            }
+
+            if (kind == EngineKind.MAPPED) {
+                MappedForest forest = new MappedForest(rows, columns, seed);
+                forest.getCells().copyFrom(channel, HEADER_SIZE);
+                forest.setSpreadKernel(getSpreadKernel());
+                forest.restore(simulationCycles, frontier, frontierSize);
+                return forest;
+            }
+
+            PackedForest forest = kind == EngineKind.FRONTIER ? new FrontierForest(rows, columns, seed) : new PackedForest(rows, columns, seed);
+            byte[] cells = forest.cells;
+            for (int offset = 0; offset < cells.length; offset += WINDOW_SIZE) {
+                int length = Math.min(WINDOW_SIZE, cells.length - offset);
+                channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + offset, length).get(cells, offset, length);
+            }
+            forest.setSpreadKernel(getSpreadKernel());
+            forest.simulationCycles = simulationCycles;
+            forest.counts.recount(forest);
+            if (forest instanceof FrontierForest frontierForest) {
+                int[] indices = new int[frontierSize];
+                for (int k = 0; k < frontierSize; k++) {
+                    indices[k] = (int) frontier[k];
+                }
+                frontierForest.restoreFrontier(indices, frontierSize);
+            }
+            return forest;
+        }
+    }
+
+    /**
+     * Returns the kind of engine the checkpoint was taken of.
+     *
+     * @return the kind of engine
+     */
+    public EngineKind getEngineKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the number of rows of the grid that represents the forest.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the grid that represents the forest.
+     *
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of simulation cycles when the checkpoint was taken.
+     *
+     * @return the number of simulation cycles
+     */
+    public int getSimulationCycles() {
+        return simulationCycles;
+    }
+
+    /**
+     * Returns the seed that every random number is derived from.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the initial probability of the fire spreading to an adjacent cell.
+     *
+     * @return the fire probability
+     */
+    public double getProbability() {
+        return probability;
+    }
+
+    /**
+     * Returns the direction of the wind.
+     *
+     * @return the wind direction
+     */
+    public Forest.WindDirection getWindDirection() {
+        return windDirection;
+    }
+
+    /**
+     * Returns the probabilities of the fire spreading in each direction when the checkpoint was taken.
+     *
+     * @return the spread kernel
+     */
+    public SpreadKernel getSpreadKernel() {
+        return new SpreadKernel(probability, windDirection);
+    }
+
+    /**
+     * Checks if any cell was burning when the checkpoint was taken.
+     *
+     * @return true if the fire was still burning
+     */
+    public boolean isStillBurning() {
+        return stillBurning;
+    }
+}
@@ -0,0 +1,532 @@
+package org.example.program4.engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A frontier forest that splits the grid into tiles of 64 x 64 cells and only allocates a tile when the fire reaches it.
+ * A tile that is not in the map is untouched. Once no cell of a tile is burning any more, its packed cells are
+ * compacted to one bit per cell telling scorched cells from untouched ones, and a tile whose cells have all been
+ * scorched is replaced by one shared constant tile. A compacted tile is expanded again if the fire comes back to it.
+ * The memory used grows with the area the fire is burning instead of the size of the forest,
+ * so the forest can be as large as the number of rows and columns allows.
+ * <p>
+ * The cells of a tile are packed like in {@link PackedForest}, and the ignitions are drawn exactly like in the other
+ * engines, so a seed gives the same fire as a {@link FrontierForest} of the same size.
+ */
+public class ChunkedForest implements SimulationEngine {
+
+    /**
+     * The number of bits of a coordinate that address a cell inside a tile.
+     */
+    private static final int TILE_SHIFT = 6;
+
+    /**
+     * The number of rows and columns of a tile.
+     */
+    static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    /**
+     * The mask for the bits of a coordinate that address a cell inside a tile.
+     */
+    private static final int TILE_MASK = TILE_SIZE - 1;
+
+    /**
+     * The tile that replaces every tile whose cells have all been scorched. It is never written to.
+     */
+    private static final Tile SCORCHED_TILE = new Tile(TILE_SIZE * TILE_SIZE);
+
+    static {
+        SCORCHED_TILE.cells = null;
+        SCORCHED_TILE.scorchedBits = new long[TILE_SIZE];
+        Arrays.fill(SCORCHED_TILE.scorchedBits, -1L);
+        SCORCHED_TILE.scorched = TILE_SIZE * TILE_SIZE;
+    }
+
+    /**
+     * The number of rows of the grid that represents the forest.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the grid that represents the forest.
+     */
+    private final int columns;
+
+    /**
+     * The tiles the fire has reached, keyed by their tile row and tile column.
+     */
+    private final Map<Long, Tile> tiles = new HashMap<>();
+
+    /**
+     * The number of tiles that have been replaced by the shared scorched tile.
+     */
+    private int collapsedTiles;
+
+    /**
+     * The number of tiles that are compacted to one bit per cell, not counting the collapsed tiles.
+     */
+    private int compactTiles;
+
+    /**
+     * The key of the tile that was looked up last, which is usually the tile of the next lookup too.
+     */
+    private long lastKey = -1;
+
+    /**
+     * The tile that was looked up last, or null if there is none.
+     */
+    private Tile lastTile;
+
+    /**
+     * A random number source used for determining whether a cell catches fire.
+     */
+    private final IgnitionRandom random;
+
+    /**
+     * The key of the current simulation cycle in the random number source.
+     */
+    private long cycleKey;
+
+    /**
+     * The probabilities of the fire spreading in each direction.
+     */
+    private SpreadKernel kernel = new SpreadKernel(0.3, Forest.WindDirection.NORTH);
+
+    /**
+     * The number of simulation cycles.
+     */
+    private int simulationCycles;
+
+    /**
+     * The indices of the cells that are burning at the start of the current simulation cycle, in row-major order.
+     */
+    private long[] frontier = new long[16];
+
+    /**
+     * The number of cells on the frontier.
+     */
+    private int frontierSize;
+
+    /**
+     * The indices of the cells that will be burning at the start of the next simulation cycle.
+     */
+    private long[] nextFrontier = new long[16];
+
+    /**
+     * The number of cells on the next frontier.
+     */
+    private int nextFrontierSize;
+
+    /**
+     * Constructs a new ChunkedForest with the specified grid size where every cell is untouched.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     */
+    public ChunkedForest(int gridSize) {
+        this(gridSize, gridSize, new IgnitionRandom());
+    }
+
+    /**
+     * Constructs a new ChunkedForest with the specified grid size where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     * @param seed     the seed that every random number is derived from
+     */
+    public ChunkedForest(int gridSize, long seed) {
+        this(gridSize, gridSize, seed);
+    }
+
+    /**
+     * Constructs a new rectangular ChunkedForest with the specified number of rows and columns where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param seed    the seed that every random number is derived from
+     */
+    public ChunkedForest(int rows, int columns, long seed) {
+        this(rows, columns, new IgnitionRandom(seed));
+    }
+
+    /**
+     * Constructs a new ChunkedForest with the specified number of rows and columns and random number source.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param random  the random number source used for determining whether a cell catches fire
+     */
+    private ChunkedForest(int rows, int columns, IgnitionRandom random) {
+        this.rows = rows;
+        this.columns = columns;
+        this.random = random;
+    }
+
+    @Override
+    public ForestCell.State getState(int i, int j) {
+        Tile tile = tiles.get(tileKey(i, j));
+        if (tile == null) {
+            return ForestCell.State.UNTOUCHED;
+        }
+        return PackedForest.STATES[tile.getState(offset(i, j))];
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int getSimulationCycles() {
+        return simulationCycles;
+    }
+
+    @Override
+    public void setSpreadKernel(SpreadKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void startFire(int i, int j) {
+        Tile tile = getWritableTile(i, j);
+        int offset = offset(i, j);
+        int state = tile.cells[offset] & PackedForest.STATE_MASK;
+        // Do not add the cell twice if the fire is started again in the same cell
+        if (state != PackedForest.BURNING) {
+            frontier = append(frontier, frontierSize++, (long) i * columns + j);
+            if (state == PackedForest.SCORCHED) {
+                tile.scorched--;
+            }
+            tile.ignite(offset);
+        }
+        // This is the first cycle of the simulation
+        simulationCycles = 1;
+    }
+
+    @Override
+    public boolean step() {
+        nextFrontierSize = 0;
+        cycleKey = random.cycleKey(simulationCycles);
+        long north = kernel.getThreshold(Forest.WindDirection.NORTH);
+        long south = kernel.getThreshold(Forest.WindDirection.SOUTH);
+        long west = kernel.getThreshold(Forest.WindDirection.WEST);
+        long east = kernel.getThreshold(Forest.WindDirection.EAST);
+        for (int k = 0; k < frontierSize; k++) {
+            long index = frontier[k];
+            int i = (int) (index / columns);
+            int j = (int) (index % columns);
+            // Check and burn the cells in each direction
+            if (i > 0) {
+                burnCell(i - 1, j, index - columns, Forest.WindDirection.NORTH, north);
+            }
+            if (i < rows - 1) {
+                burnCell(i + 1, j, index + columns, Forest.WindDirection.SOUTH, south);
+            }
+            if (j > 0) {
+                burnCell(i, j - 1, index - 1, Forest.WindDirection.WEST, west);
+            }
+            if (j < columns - 1) {
+                burnCell(i, j + 1, index + 1, Forest.WindDirection.EAST, east);
+            }
+            // Increment burn duration for the current cell and set it to scorched once it has burned for 2 cycles
+            // The tile of a burning cell is never compacted
+            Tile tile = getTile(i, j);
+            int offset = offset(i, j);
+            int cell = tile.cells[offset] + PackedForest.BURN_DURATION_UNIT;
+            if ((cell & PackedForest.BURN_DURATION_MASK) == 2 * PackedForest.BURN_DURATION_UNIT) {
+                tile.cells[offset] = (byte) ((cell & ~PackedForest.STATE_MASK) | PackedForest.SCORCHED);
+                tile.scorched++;
+                tile.burning--;
+                if (tile.burning == 0) {
+                    compact(i, j, tile);
+                }
+            } else {
+                // Keep the cell on the frontier until it is scorched
+                tile.cells[offset] = (byte) cell;
+                nextFrontier = append(nextFrontier, nextFrontierSize++, index);
+            }
+        }
+
+        // The next frontier becomes the current frontier
+        long[] swap = frontier;
+        frontier = nextFrontier;
+        frontierSize = nextFrontierSize;
+        nextFrontier = swap;
+
+        simulationCycles++;
+        return frontierSize > 0;
+    }
+
+    @Override
+    public boolean isStillBurning() {
+        return frontierSize > 0;
+    }
+
+    /**
+     * Sets the specified cell to burning based on the given adjusted probability
+     * and adds it to the next frontier if it catches fire. The tile of the cell is allocated if it does not exist yet.
+     *
+     * @param i         the x-coordinate of the specified cell
+     * @param j         the y-coordinate of the specified cell
+     * @param index     the index of the specified cell in row-major order
+     * @param direction the direction the fire spreads in to reach the specified cell
+     * @param threshold the cut-off of the adjusted probability of the fire spreading to the specified cell
+     */
+    private void burnCell(int i, int j, long index, Forest.WindDirection direction, long threshold) {
+        Tile tile = getTile(i, j);
+        int offset = offset(i, j);
+        if (tile != null && tile.getState(offset) != PackedForest.UNTOUCHED) {
+            return;
+        }
+        // Only allocate or expand the tile once a cell in it actually catches fire
+        if (SpreadKernel.ignites(IgnitionRandom.nextLong(cycleKey, index, direction), threshold)) {
+            getWritableTile(i, j).ignite(offset);
+            nextFrontier = append(nextFrontier, nextFrontierSize++, index);
+        }
+    }
+
+    /**
+     * Compacts the tile of the specified cell now that none of its cells are burning,
+     * or replaces it by the shared scorched tile if all its cells are scorched.
+     *
+     * @param i    the x-coordinate of a cell in the tile
+     * @param j    the y-coordinate of a cell in the tile
+     * @param tile the tile of the cell
+     */
+    private void compact(int i, int j, Tile tile) {
+        if (tile.scorched == tile.capacity) {
+            long key = tileKey(i, j);
+            tiles.put(key, SCORCHED_TILE);
+            collapsedTiles++;
+            if (lastKey == key) {
+                lastTile = SCORCHED_TILE;
+            }
+        } else {
+            tile.compact();
+            compactTiles++;
+        }
+    }
+
+    /**
+     * Returns the tile of the specified cell.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the tile, or null if the fire has not reached it yet
+     */
+    private Tile getTile(int i, int j) {
+        long key = tileKey(i, j);
+        if (key == lastKey) {
+            return lastTile;
+        }
+        lastKey = key;
+        lastTile = tiles.get(key);
+        return lastTile;
+    }
+
+    /**
+     * Returns the tile of the specified cell with its packed cells, allocating or expanding it if needed.
+     * A collapsed tile is replaced by a copy of its own, since the shared scorched tile is never written to.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the tile
+     */
+    private Tile getWritableTile(int i, int j) {
+        Tile tile = getTile(i, j);
+        if (tile == null || tile == SCORCHED_TILE) {
+            // Tiles on the last row or column of tiles may stick out of the grid
+            int tileRows = Math.min(TILE_SIZE, rows - (i & ~TILE_MASK));
+            int tileColumns = Math.min(TILE_SIZE, columns - (j & ~TILE_MASK));
+            Tile newTile = new Tile(tileRows * tileColumns);
+            if (tile == SCORCHED_TILE) {
+                Arrays.fill(newTile.cells, (byte) PackedForest.SCORCHED);
+                newTile.scorched = newTile.capacity;
+                collapsedTiles--;
+            }
+            tile = newTile;
+            tiles.put(lastKey, tile);
+            lastTile = tile;
+        } else if (tile.cells == null) {
+            tile.expand();
+            compactTiles--;
+        }
+        return tile;
+    }
+
+    /**
+     * Returns the key of the tile of the specified cell, made of the tile row and the tile column.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the key of the tile
+     */
+    private static long tileKey(int i, int j) {
+        return ((long) (i >>> TILE_SHIFT) << 32) | (j >>> TILE_SHIFT);
+    }
+
+    /**
+     * Returns the position of the specified cell inside its tile.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the position of the cell in the cells of the tile
+     */
+    private static int offset(int i, int j) {
+        return ((i & TILE_MASK) << TILE_SHIFT) | (j & TILE_MASK);
+    }
+
+    @Override
+    public long getBurningCount() {
+        return frontierSize;
+    }
+
+    /**
+     * Returns the number of cells that are currently burning.
+     *
+     * @return the number of cells on the frontier
+     */
+    public int getFrontierSize() {
+        return frontierSize;
+    }
+
+    /**
+     * Returns the number of tiles the fire has reached, including the tiles that have been collapsed.
+     *
+     * @return the number of tiles
+     */
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Returns the number of tiles whose cells have all been scorched and that no longer use their own memory.
+     *
+     * @return the number of collapsed tiles
+     */
+    public int getCollapsedTileCount() {
+        return collapsedTiles;
+    }
+
+    /**
+     * Returns the number of tiles the fire has passed that are stored as one bit per cell, not counting the collapsed tiles.
+     *
+     * @return the number of compacted tiles
+     */
+    public int getCompactTileCount() {
+        return compactTiles;
+    }
+
+    /**
+     * Stores a value in the array, growing the array if it is full.
+     *
+     * @param array the array
+     * @param size  the position to store the value at, which is the number of values already in the array
+     * @param value the value to store
+     * @return the array, or a larger copy of it if it was full
+     */
+    private static long[] append(long[] array, int size, long value) {
+        if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = value;
+        return array;
+    }
+
+    /**
+     * A tile of 64 x 64 cells, either packed with one byte per cell or compacted with one bit per cell.
+     */
+    private static final class Tile {
+
+        /**
+         * The packed cells of the tile in row-major order, always 64 cells per row, or null if the tile is compacted.
+         */
+        byte[] cells = new byte[TILE_SIZE * TILE_SIZE];
+
+        /**
+         * One bit per cell that is set if the cell is scorched, one long per row, or null if the tile is not compacted.
+         */
+        long[] scorchedBits;
+
+        /**
+         * The number of cells of the tile that are inside the grid.
+         */
+        final int capacity;
+
+        /**
+         * The number of cells of the tile that are scorched.
+         */
+        int scorched;
+
+        /**
+         * The number of cells of the tile that are burning.
+         */
+        int burning;
+
+        /**
+         * Constructs a tile where every cell is untouched.
+         *
+         * @param capacity the number of cells of the tile that are inside the grid
+         */
+        Tile(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Returns the state bits of a cell of the tile.
+         *
+         * @param offset the position of the cell in the tile
+         * @return the state bits of the cell
+         */
+        int getState(int offset) {
+            if (cells != null) {
+                return cells[offset] & PackedForest.STATE_MASK;
+            }
+            boolean isScorched = (scorchedBits[offset >>> TILE_SHIFT] & (1L << offset)) != 0;
+            return isScorched ? PackedForest.SCORCHED : PackedForest.UNTOUCHED;
+        }
+
+        /**
+         * Sets an untouched cell of the tile on fire. The tile must not be compacted.
+         *
+         * @param offset the position of the cell in the tile
+         */
+        void ignite(int offset) {
+            cells[offset] = PackedForest.BURNING;
+            burning++;
+        }
+
+        /**
+         * Replaces the packed cells by one bit per cell. No cell of the tile may be burning.
+         */
+        void compact() {
+            scorchedBits = new long[TILE_SIZE];
+            for (int offset = 0; offset < cells.length; offset++) {
+                if ((cells[offset] & PackedForest.STATE_MASK) == PackedForest.SCORCHED) {
+                    scorchedBits[offset >>> TILE_SHIFT] |= 1L << offset;
+                }
+            }
+            cells = null;
+        }
+
+        /**
+         * Replaces the bits of a compacted tile by packed cells again.
+         */
+        void expand() {
+            cells = new byte[TILE_SIZE * TILE_SIZE];
+            for (int offset = 0; offset < cells.length; offset++) {
+                if ((scorchedBits[offset >>> TILE_SHIFT] & (1L << offset)) != 0) {
+                    cells[offset] = PackedForest.SCORCHED;
+                }
+            }
+            scorchedBits = null;
+        }
+    }
+}
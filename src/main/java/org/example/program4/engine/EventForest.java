@@ -0,0 +1,286 @@
+package org.example.program4.engine;
+
+import java.util.Arrays;
+
+/**
+ * A forest simulated in continuous time: instead of visiting the burning cells every simulation cycle,
+ * each cell that catches fire schedules the moments it will reach its neighbours and the moment it is scorched
+ * in an {@link EventQueue}. The work grows with the number of cells that catch fire rather than with the number
+ * of cycles times the burning cells, and every cell gets the exact time it caught fire, between two cycles.
+ * <p>
+ * A cell burns for {@link #BURN_TIME} time units, like the two cycles of {@link Forest}, and makes the same two
+ * attempts to spread the fire to each neighbour with the same adjusted probabilities. Instead of at the end of a
+ * cycle, the first attempt happens at a random moment of the first time unit after the cell caught fire and the
+ * second at a random moment of the second. If the neighbour is still untouched when an attempt succeeds, it catches
+ * fire at that moment. Whether the fire gets from a cell to a neighbour has the same odds as in the other engines,
+ * so the burned area has the same distribution, while the individual runs differ because the ignitions are no
+ * longer lined up on the cycles.
+ * <p>
+ * {@link #step()} advances the clock by one time unit and handles every event up to the new time, so the engine
+ * can be driven like any other. The fire is started at time 0.
+ */
+public class EventForest implements SimulationEngine {
+
+    /**
+     * The time a cell burns for before it is scorched.
+     */
+    public static final double BURN_TIME = 2.0;
+
+    /**
+     * The event kind of a cell being scorched. The kinds 0 to 3 are the fire reaching a cell in the direction
+     * with that ordinal.
+     */
+    private static final int SCORCH = 4;
+
+    /**
+     * The number of bits of an event that hold its kind, below the index of the cell.
+     */
+    private static final int KIND_BITS = 3;
+
+    /**
+     * The mask for the kind of an event.
+     */
+    private static final long KIND_MASK = (1 << KIND_BITS) - 1;
+
+    /**
+     * The number of rows of the grid that represents the forest.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the grid that represents the forest.
+     */
+    private final int columns;
+
+    /**
+     * The state of every cell in row-major order, using the state bits of {@link PackedForest}.
+     */
+    private final byte[] states;
+
+    /**
+     * The time every cell caught fire in row-major order, or NaN for untouched cells.
+     */
+    private final float[] ignitionTimes;
+
+    /**
+     * The events that have not happened yet.
+     */
+    private final EventQueue events = new EventQueue();
+
+    /**
+     * The keys of the random numbers of the first and the second attempt in the random number source.
+     * Each cell catches fire at most once, so the cell and the direction are enough to tell the random numbers apart.
+     */
+    private final long firstAttemptKey, secondAttemptKey;
+
+    /**
+     * The probabilities of the fire spreading in each direction.
+     */
+    private SpreadKernel kernel = new SpreadKernel(0.3, Forest.WindDirection.NORTH);
+
+    /**
+     * The fuel of every cell, or null if every cell has full fuel.
+     */
+    private FuelMap fuelMap;
+
+    /**
+     * The number of simulation cycles, which is one more than the time the events have been handled up to.
+     */
+    private int simulationCycles;
+
+    /**
+     * The number of cells in each state, updated as the events happen.
+     */
+    private final StateCounts counts;
+
+    /**
+     * The cells whose state changed during the last simulation cycle.
+     */
+    private final CellChanges changes = new CellChanges();
+
+    /**
+     * Constructs a new rectangular EventForest with the specified number of rows and columns where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param seed    the seed that every random number is derived from
+     */
+    public EventForest(int rows, int columns, long seed) {
+        this.rows = rows;
+        this.columns = columns;
+        int size = Math.multiplyExact(rows, columns);
+        this.states = new byte[size];
+        this.ignitionTimes = new float[size];
+        Arrays.fill(ignitionTimes, Float.NaN);
+        this.counts = new StateCounts(size);
+        // The cycles before the first are never run by the other engines, so their keys are free for the attempts
+        IgnitionRandom random = new IgnitionRandom(seed);
+        this.firstAttemptKey = random.cycleKey(0);
+        this.secondAttemptKey = random.cycleKey(-1);
+    }
+
+    @Override
+    public void setSpreadKernel(SpreadKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void setFuelMap(FuelMap fuelMap) {
+        if (fuelMap != null) {
+            fuelMap.checkSize(this);
+        }
+        this.fuelMap = fuelMap;
+    }
+
+    @Override
+    public void startFire(int i, int j) {
+        changes.clear();
+        simulationCycles = 1;
+        // A cell that is already burning or scorched must not be set on fire and scorched again
+        if (states[i * columns + j] == PackedForest.UNTOUCHED) {
+            ignite(i * columns + j, 0);
+        }
+    }
+
+    @Override
+    public boolean step() {
+        changes.clear();
+        // Handle every event up to the end of this cycle, including the cells scorched right at the end
+        double end = simulationCycles;
+        while (!events.isEmpty() && events.peekTime() <= end) {
+            double time = events.peekTime();
+            long event = events.peekEvent();
+            events.remove();
+            int index = (int) (event >>> KIND_BITS);
+            int kind = (int) (event & KIND_MASK);
+            if (kind == SCORCH) {
+                states[index] = PackedForest.SCORCHED;
+                counts.move(PackedForest.BURNING, PackedForest.SCORCHED);
+                changes.add(index);
+            } else if (states[index] == PackedForest.UNTOUCHED) {
+                ignite(index, time);
+            }
+        }
+        simulationCycles++;
+        return isStillBurning();
+    }
+
+    /**
+     * Sets a cell on fire and schedules the moments it reaches its untouched neighbours and is scorched.
+     *
+     * @param index the index of the cell
+     * @param time  the time the cell catches fire
+     */
+    private void ignite(int index, double time) {
+        counts.move(states[index], PackedForest.BURNING);
+        states[index] = PackedForest.BURNING;
+        ignitionTimes[index] = (float) time;
+        changes.add(index);
+        events.add(time + BURN_TIME, ((long) index << KIND_BITS) | SCORCH);
+        int i = index / columns;
+        int j = index - i * columns;
+        if (i > 0) {
+            scheduleSpread(index, index - columns, Forest.WindDirection.NORTH, time);
+        }
+        if (i < rows - 1) {
+            scheduleSpread(index, index + columns, Forest.WindDirection.SOUTH, time);
+        }
+        if (j > 0) {
+            scheduleSpread(index, index - 1, Forest.WindDirection.WEST, time);
+        }
+        if (j < columns - 1) {
+            scheduleSpread(index, index + 1, Forest.WindDirection.EAST, time);
+        }
+    }
+
+    /**
+     * Draws the two attempts to spread the fire to a neighbour and schedules the first one that succeeds,
+     * at a random moment of its time unit. The moment is drawn by mixing the bits of the attempt once more.
+     *
+     * @param source    the index of the burning cell
+     * @param target    the index of the neighbour
+     * @param direction the direction the fire spreads in to reach the neighbour
+     * @param time      the time the burning cell caught fire
+     */
+    private void scheduleSpread(int source, int target, Forest.WindDirection direction, double time) {
+        if (states[target] != PackedForest.UNTOUCHED) {
+            return;
+        }
+        long threshold = kernel.getThreshold(direction);
+        int fuel = fuelMap == null ? FuelMap.FULL_FUEL : fuelMap.getFuel(target);
+        double delay;
+        long bits = IgnitionRandom.nextLong(firstAttemptKey, source, direction);
+        if (SpreadKernel.ignites(bits, threshold, fuel)) {
+            delay = IgnitionRandom.toDouble(IgnitionRandom.mix64(bits));
+        } else {
+            bits = IgnitionRandom.nextLong(secondAttemptKey, source, direction);
+            if (!SpreadKernel.ignites(bits, threshold, fuel)) {
+                return;
+            }
+            delay = 1 + IgnitionRandom.toDouble(IgnitionRandom.mix64(bits));
+        }
+        events.add(time + delay, ((long) target << KIND_BITS) | direction.ordinal());
+    }
+
+    /**
+     * Returns the time the specified cell caught fire, counting from the time the fire was started.
+     * The fire reaches the cells with the cycles of the other engines between the time and the time plus one.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the time the cell caught fire, or NaN if it has not caught fire
+     */
+    public double getIgnitionTime(int i, int j) {
+        return ignitionTimes[i * columns + j];
+    }
+
+    /**
+     * Returns the number of events that have not happened yet.
+     *
+     * @return the number of pending events
+     */
+    public int getPendingEvents() {
+        return events.size();
+    }
+
+    @Override
+    public boolean isStillBurning() {
+        return counts.anyBurning();
+    }
+
+    @Override
+    public ForestCell.State getState(int i, int j) {
+        return PackedForest.STATES[states[i * columns + j]];
+    }
+
+    @Override
+    public CellChanges getChangedCells() {
+        return changes;
+    }
+
+    @Override
+    public long getBurningCount() {
+        return counts.get(ForestCell.State.BURNING);
+    }
+
+    @Override
+    public long getStateCount(ForestCell.State state) {
+        return counts.get(state);
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int getSimulationCycles() {
+        return simulationCycles;
+    }
+}
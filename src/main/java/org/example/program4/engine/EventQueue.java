@@ -0,0 +1,119 @@
+package org.example.program4.engine;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of events keyed on their time, stored in two primitive arrays instead of event objects,
+ * so scheduling an event allocates nothing once the arrays have grown.
+ */
+final class EventQueue {
+
+    /**
+     * The time of each event, in heap order.
+     */
+    private double[] times = new double[16];
+
+    /**
+     * What each event is, in the same order as the times.
+     */
+    private long[] events = new long[16];
+
+    /**
+     * The number of events in the queue.
+     */
+    private int size;
+
+    /**
+     * Returns the number of events in the queue.
+     *
+     * @return the number of events
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks if there are no events in the queue.
+     *
+     * @return true if the queue is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every event.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds an event.
+     *
+     * @param time  the time of the event
+     * @param event what the event is
+     */
+    void add(double time, long event) {
+        if (size == times.length) {
+            times = Arrays.copyOf(times, size * 2);
+            events = Arrays.copyOf(events, size * 2);
+        }
+        // Move the parents that are later than the event down until its place is found
+        int k = size++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (times[parent] <= time) {
+                break;
+            }
+            times[k] = times[parent];
+            events[k] = events[parent];
+            k = parent;
+        }
+        times[k] = time;
+        events[k] = event;
+    }
+
+    /**
+     * Returns the time of the earliest event. The queue must not be empty.
+     *
+     * @return the time of the earliest event
+     */
+    double peekTime() {
+        return times[0];
+    }
+
+    /**
+     * Returns the earliest event. The queue must not be empty.
+     *
+     * @return the earliest event
+     */
+    long peekEvent() {
+        return events[0];
+    }
+
+    /**
+     * Removes the earliest event. The queue must not be empty.
+     */
+    void remove() {
+        double time = times[--size];
+        long event = events[size];
+        // Move the earlier child up until the place of the last event is found
+        int k = 0;
+        int half = size >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            if (child + 1 < size && times[child + 1] < times[child]) {
+                child++;
+            }
+            if (time <= times[child]) {
+                break;
+            }
+            times[k] = times[child];
+            events[k] = events[child];
+            k = child;
+        }
+        times[k] = time;
+        events[k] = event;
+    }
+}
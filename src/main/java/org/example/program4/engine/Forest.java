@@ -0,0 +1,408 @@
+package org.example.program4.engine;
+
+/**
+ * This class represents a forest with a grid of cells. Each cell can be in one of three states:
+ * untouched, burning, or burned. The forest can be set on fire at a specific cell, and the fire
+ * can spread to adjacent cells based on a probability and the direction of the wind.
+ * The forest has no JavaFX dependency, so it can be stepped headless or used as the model behind the GUI.
+ */
+public class Forest implements SimulationEngine {
+
+    /**
+     * The number of rows of the grid that represents the forest.
+     */
+    private final int ROWS;
+
+    /**
+     * The number of columns of the grid that represents the forest.
+     */
+    private final int COLUMNS;
+
+    /**
+     * The grid of cells that represents the forest.
+     */
+    private final ForestCell[][] grid;
+
+    /**
+     * A random number source used for determining whether a cell catches fire.
+     */
+    private final IgnitionRandom random;
+
+    /**
+     * The probabilities of the fire spreading in each direction.
+     */
+    private SpreadKernel kernel = new SpreadKernel(0.3, WindDirection.NORTH);
+
+    /**
+     * The fuel of every cell, or null if every cell has full fuel.
+     */
+    private FuelMap fuelMap;
+
+    /**
+     * The key of the current simulation cycle in the random number source.
+     */
+    private long cycleKey;
+
+    /**
+     * The number of simulation cycles.
+     */
+    private int simulationCycles;
+
+    /**
+     * The number of cells in each state, updated whenever the forest changes the state of a cell.
+     */
+    private final StateCounts counts;
+
+    /**
+     * Constructs a new Forest with the specified grid size where every cell is untouched.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     */
+    public Forest(int gridSize) {
+        this(gridSize, createGrid(gridSize, gridSize));
+    }
+
+    /**
+     * Constructs a new Forest with the specified grid size where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     * @param seed     the seed that every random number is derived from
+     */
+    public Forest(int gridSize, long seed) {
+        this(gridSize, gridSize, seed);
+    }
+
+    /**
+     * Constructs a new rectangular Forest with the specified number of rows and columns where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param seed    the seed that every random number is derived from
+     */
+    public Forest(int rows, int columns, long seed) {
+        this(rows, columns, createGrid(rows, columns), new IgnitionRandom(seed));
+    }
+
+    /**
+     * Constructs a new Forest with the specified grid size and initial grid of cells.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     * @param grid     the initial grid of cells
+     */
+    public Forest(int gridSize, ForestCell[][] grid) {
+        this(gridSize, gridSize, grid, new IgnitionRandom());
+    }
+
+    /**
+     * Constructs a new Forest with the specified number of rows and columns, initial grid of cells and random number source.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param grid    the initial grid of cells
+     * @param random  the random number source used for determining whether a cell catches fire
+     */
+    private Forest(int rows, int columns, ForestCell[][] grid, IgnitionRandom random) {
+        this.ROWS = rows;
+        this.COLUMNS = columns;
+        this.grid = grid;
+        this.random = random;
+        // The grid may be given with cells that are already burning or scorched
+        this.counts = countStates(grid, (long) rows * columns);
+    }
+
+    /**
+     * Counts the cells of a grid in each state.
+     *
+     * @param grid  the grid of cells
+     * @param cells the number of cells of the grid
+     * @return the number of cells in each state
+     */
+    private static StateCounts countStates(ForestCell[][] grid, long cells) {
+        StateCounts counts = new StateCounts(cells);
+        for (ForestCell[] row : grid) {
+            for (ForestCell cell : row) {
+                counts.move(PackedForest.UNTOUCHED, cell.getState().ordinal());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Creates a grid of untouched cells.
+     *
+     * @param rows    the number of rows of the grid
+     * @param columns the number of columns of the grid
+     * @return the grid of cells
+     */
+    private static ForestCell[][] createGrid(int rows, int columns) {
+        ForestCell[][] grid = new ForestCell[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                grid[i][j] = new ForestCell();
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the grid of cells that represents the forest.
+     *
+     * @return the grid of cells
+     */
+    public ForestCell[][] getGrid() {
+        return grid;
+    }
+
+    /**
+     * Returns the cell at the specified coordinates in the grid.
+     *
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return the cell at the specified coordinates
+     */
+    public ForestCell getCell(int x, int y) {
+        return this.grid[x][y];
+    }
+
+    @Override
+    public ForestCell.State getState(int i, int j) {
+        return getCell(i, j).getState();
+    }
+
+    @Override
+    public int getRows() {
+        return ROWS;
+    }
+
+    @Override
+    public int getColumns() {
+        return COLUMNS;
+    }
+
+    @Override
+    public int getSimulationCycles() {
+        return simulationCycles;
+    }
+
+    @Override
+    public void setSpreadKernel(SpreadKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void setFuelMap(FuelMap fuelMap) {
+        if (fuelMap != null) {
+            fuelMap.checkSize(this);
+        }
+        this.fuelMap = fuelMap;
+    }
+
+    @Override
+    public void startFire(int i, int j) {
+        setState(getCell(i, j), ForestCell.State.BURNING);
+        // This is the first cycle of the simulation
+        simulationCycles = 1;
+    }
+
+    @Override
+    public boolean step() {
+        // Take a snapshot of the burning cells first, so cells that catch fire during this cycle
+        // do not spread the fire until the next cycle
+        boolean[][] burningCells = new boolean[ROWS][COLUMNS];
+        for (int i = 0; i < ROWS; i++) {
+            for (int j = 0; j < COLUMNS; j++) {
+                burningCells[i][j] = grid[i][j].getState() == ForestCell.State.BURNING;
+            }
+        }
+
+        // Spread the fire from every cell that was burning at the start of the cycle
+        cycleKey = random.cycleKey(simulationCycles);
+        for (int i = 0; i < ROWS; i++) {
+            for (int j = 0; j < COLUMNS; j++) {
+                if (burningCells[i][j]) {
+                    burnAdjacent(i, j, kernel);
+                }
+            }
+        }
+        simulationCycles++;
+        return isStillBurning();
+    }
+
+    @Override
+    public boolean isStillBurning() {
+        return counts.anyBurning();
+    }
+
+    @Override
+    public long getBurningCount() {
+        return counts.get(ForestCell.State.BURNING);
+    }
+
+    @Override
+    public long getStateCount(ForestCell.State state) {
+        return counts.get(state);
+    }
+
+    /**
+     * Sets the state of the specified cell and counts the change.
+     * The counts only stay correct if the cells of the grid are not changed through {@link #getCell} while simulating.
+     *
+     * @param cell  the cell
+     * @param state the new state of the cell
+     */
+    private void setState(ForestCell cell, ForestCell.State state) {
+        counts.move(cell.getState().ordinal(), state.ordinal());
+        cell.setState(state);
+    }
+
+    /**
+     * Attempts to spread the fire from the specified cell to its adjacent cells.
+     * The fire can spread to the north, south, east, or west of the specified cell.
+     * The probability of the fire spreading to an adjacent cell is adjusted based on the wind direction.
+     *
+     * @param i             the x-coordinate of the specified cell
+     * @param j             the y-coordinate of the specified cell
+     * @param probability   the initial probability of the fire spreading to an adjacent cell
+     * @param windDirection the direction of the wind
+     */
+    public void burnAdjacent(int i, int j, double probability, String windDirection) {
+        cycleKey = random.cycleKey(simulationCycles);
+        burnAdjacent(i, j, new SpreadKernel(probability, WindDirection.valueOf(windDirection.toUpperCase())));
+    }
+
+    /**
+     * Attempts to spread the fire from the specified cell to its adjacent cells,
+     * using the precomputed probabilities of the spread kernel.
+     *
+     * @param i      the x-coordinate of the specified cell
+     * @param j      the y-coordinate of the specified cell
+     * @param kernel the probabilities of the fire spreading in each direction
+     */
+    // Redid this entire code because it was redundant and not very efficient
+    // I wanted to ensure I iterated over the 2D array only once instead of twice or more
+    private void burnAdjacent(int i, int j, SpreadKernel kernel) {
+        ForestCell cell = getCell(i, j);
+        if (cell.isBurning() && !cell.isBurned()) {
+            // Check and burn the cells in each direction
+            if (i > 0) {
+                burnCell(i - 1, j, WindDirection.NORTH, kernel.getThreshold(WindDirection.NORTH));
+            }
+            if (i < ROWS - 1) {
+                burnCell(i + 1, j, WindDirection.SOUTH, kernel.getThreshold(WindDirection.SOUTH));
+            }
+            if (j > 0) {
+                burnCell(i, j - 1, WindDirection.WEST, kernel.getThreshold(WindDirection.WEST));
+            }
+            if (j < COLUMNS - 1) {
+                burnCell(i, j + 1, WindDirection.EAST, kernel.getThreshold(WindDirection.EAST));
+            }
+            // Increment burn duration for the current cell
+            if (cell.getState() == ForestCell.State.BURNING) {
+                cell.incrementBurnDuration();
+                // If the burn duration is 2, set the cell to scorched
+                if (cell.getBurnDuration() == 2) {
+                    setState(cell, ForestCell.State.SCORCHED);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the specified cell to burning based on the given adjusted probability.
+     * The probability is adjusted based on the wind direction and given as a cut-off from the spread kernel,
+     * which is scaled by the fuel of the cell if there is a fuel map.
+     *
+     * @param i         the x-coordinate of the specified cell
+     * @param j         the y-coordinate of the specified cell
+     * @param direction the direction the fire spreads in to reach the specified cell
+     * @param threshold the cut-off of the adjusted probability of the fire spreading to the specified cell
+     */
+    // This method was added to avoid redundancy in the burnAdjacent method
+    // It sets the cell to burning based on the adjusted probability
+    private void burnCell(int i, int j, WindDirection direction, long threshold) {
+        ForestCell cell = getCell(i, j);
+        if (cell.getState() == ForestCell.State.UNTOUCHED) {
+            int index = i * COLUMNS + j;
+            long bits = IgnitionRandom.nextLong(cycleKey, index, direction);
+            if (fuelMap == null ? SpreadKernel.ignites(bits, threshold)
+                    : SpreadKernel.ignites(bits, threshold, fuelMap.getFuel(index))) {
+                setState(cell, ForestCell.State.BURNING);
+            }
+        }
+    }
+
+    /**
+     * Enum representing the four cardinal directions.
+     * Enum value because a wind direction is a fixed set of values.
+     * Each direction has an opposite direction, which can be obtained using the getOppositeWindDirection method.
+     */
+    public enum WindDirection {
+        NORTH, SOUTH, EAST, WEST;
+
+        /**
+         * Returns the opposite direction of the current direction.
+         * The opposite direction is determined as follows:
+         * - North ("N") is opposite to South ("S")
+         * - South ("S") is opposite to North ("N")
+         * - East ("E") is opposite to West ("W")
+         * - West ("W") is opposite to East ("E")
+         *
+         * @return the opposite direction
+         */
+        public WindDirection getOppositeWindDirection() {
+            return switch (this) {
+                case NORTH -> SOUTH;
+                case SOUTH -> NORTH;
+                case EAST -> WEST;
+                case WEST -> EAST;
+            };
+        }
+    }
+
+    /**
+     * Adjusts the given probability based on the wind direction and the direction of fire spread.
+     * The wind direction and direction of fire spread are converted from String to WindDirection enum before the adjustment.
+     * Kept for callers that still pass Strings; the simulation uses a {@link SpreadKernel} instead.
+     *
+     * @param probability         the initial probability of the fire spreading
+     * @param windDirectionString the direction of the wind as a String
+     * @param directionString     the direction of the fire spread as a String
+     * @return the adjusted probability
+     */
+    // 2nd attempt to integrate enum values into the methods
+    static double adjustProbability(double probability, String windDirectionString, String directionString) {
+
+        // Convert the String wind direction and direction to the WindDirection enum
+        WindDirection windDirection = WindDirection.valueOf(windDirectionString.toUpperCase());
+
+        // Convert the String direction to the WindDirection enum
+        WindDirection direction = WindDirection.valueOf(directionString.toUpperCase());
+
+        return adjustProbability(probability, windDirection, direction);
+    }
+
+    /**
+     * Adjusts the given probability based on the wind direction and the direction of fire spread.
+     *
+     * @param probability   the initial probability of the fire spreading
+     * @param windDirection the direction of the wind
+     * @param direction     the direction of the fire spread
+     * @return the adjusted probability
+     */
+    static double adjustProbability(double probability, WindDirection windDirection, WindDirection direction) {
+        // Adjust the probability based on the wind direction
+        double adjustedProbability;
+        // If the wind is blowing in the same direction as the spread, increase the probability
+        if (windDirection == direction) {
+            adjustedProbability = Math.min(probability + 0.1, 1.0);
+            // If the wind is blowing in the opposite direction as the spread, decrease the probability
+        } else if (windDirection == direction.getOppositeWindDirection()) {
+            adjustedProbability = Math.max(probability - 0.1, 0.0);
+        } else {
+            adjustedProbability = probability;
+        }
+        return adjustedProbability;
+    }
+}
\ No newline at end of file
@@ -1,9 +1,8 @@
-package org.example.program4;
-
-import javafx.scene.shape.Rectangle;
+package org.example.program4.engine;
 
 /**
- * Represents a cell in a forest. Each cell has a state, burn duration, a rectangle for graphical representation, and a flag indicating if it has been burned.
+ * Represents a cell in a forest. Each cell has a state, burn duration, and a flag indicating if it has been burned.
+ * The cell has no graphical representation so the forest can be simulated without a GUI.
  */
 public class ForestCell {
 
@@ -21,19 +20,15 @@ public class ForestCell {
 
     private State state;
     private int burnDuration;
-    private final Rectangle rectangle;
     private boolean isBurned;
 
     /**
-     * Constructs a ForestCell with the given rectangle for graphical representation.
+     * Constructs a ForestCell.
      * Initially, the state is set to UNTOUCHED, burn duration is 0, and isBurned flag is false.
-     *
-     * @param rectangle the rectangle for graphical representation
      */
-    public ForestCell(Rectangle rectangle) {
+    public ForestCell() {
         this.state = State.UNTOUCHED;
         this.burnDuration = 0;
-        this.rectangle = rectangle;
     }
 
     /**
@@ -70,15 +65,6 @@ public class ForestCell {
         this.burnDuration++;
     }
 
-    /**
-     * Returns the rectangle of the cell for graphical representation.
-     *
-     * @return the rectangle of the cell
-     */
-    public Rectangle getRectangle() {
-        return rectangle;
-    }
-
     /**
      * Checks if the cell is burning.
      *
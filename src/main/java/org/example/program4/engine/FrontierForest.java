@@ -0,0 +1,169 @@
+package org.example.program4.engine;
+
+import java.util.Arrays;
+
+/**
+ * A packed forest that keeps a list of the cells that are currently burning, called the frontier.
+ * A simulation cycle only visits the cells on the frontier instead of scanning the whole grid,
+ * and the fire has gone out when the frontier is empty. The cost of a cycle grows with the
+ * perimeter of the fire instead of the area of the forest.
+ */
+public class FrontierForest extends PackedForest {
+
+    /**
+     * The indices of the cells that are burning at the start of the current simulation cycle.
+     */
+    private int[] frontier = new int[16];
+
+    /**
+     * The number of cells on the frontier.
+     */
+    private int frontierSize;
+
+    /**
+     * The indices of the cells that will be burning at the start of the next simulation cycle.
+     */
+    private int[] nextFrontier = new int[16];
+
+    /**
+     * The number of cells on the next frontier.
+     */
+    private int nextFrontierSize;
+
+    /**
+     * Constructs a new FrontierForest with the specified grid size where every cell is untouched.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     */
+    public FrontierForest(int gridSize) {
+        super(gridSize);
+    }
+
+    /**
+     * Constructs a new FrontierForest with the specified grid size where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     * @param seed     the seed that every random number is derived from
+     */
+    public FrontierForest(int gridSize, long seed) {
+        super(gridSize, seed);
+    }
+
+    /**
+     * Constructs a new rectangular FrontierForest with the specified number of rows and columns where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param seed    the seed that every random number is derived from
+     */
+    public FrontierForest(int rows, int columns, long seed) {
+        super(rows, columns, seed);
+    }
+
+    @Override
+    public void startFire(int i, int j) {
+        boolean alreadyBurning = getState(i, j) == ForestCell.State.BURNING;
+        super.startFire(i, j);
+        // Do not add the cell twice if the fire is started again in the same cell
+        if (!alreadyBurning) {
+            frontier = append(frontier, frontierSize++, index(i, j));
+        }
+    }
+
+    @Override
+    public boolean step() {
+        nextFrontierSize = 0;
+        changes.clear();
+        cycleKey = random.cycleKey(simulationCycles);
+        for (int k = 0; k < frontierSize; k++) {
+            int index = frontier[k];
+            // Spread the fire, which adds the cells that catch fire to the next frontier
+            burnAdjacent(index / columns, index % columns, kernel);
+            // Keep the cell on the frontier until it is scorched
+            if ((cells[index] & STATE_MASK) == BURNING) {
+                nextFrontier = append(nextFrontier, nextFrontierSize++, index);
+            }
+        }
+
+        // The next frontier becomes the current frontier
+        int[] swap = frontier;
+        frontier = nextFrontier;
+        frontierSize = nextFrontierSize;
+        nextFrontier = swap;
+
+        simulationCycles++;
+        return isStillBurning();
+    }
+
+    /**
+     * Sets the specified cell to burning based on the given adjusted probability
+     * and adds it to the next frontier if it catches fire.
+     *
+     * @param index     the index of the specified cell
+     * @param direction the direction the fire spreads in to reach the specified cell
+     * @param threshold the cut-off of the adjusted probability of the fire spreading to the specified cell
+     */
+    @Override
+    protected void burnCell(int index, Forest.WindDirection direction, long threshold) {
+        if ((cells[index] & STATE_MASK) == UNTOUCHED && ignites(index, direction, threshold)) {
+            cells[index] = BURNING;
+            counts.move(UNTOUCHED, BURNING);
+            changes.add(index);
+            nextFrontier = append(nextFrontier, nextFrontierSize++, index);
+        }
+    }
+
+    @Override
+    public long getBurningCount() {
+        return frontierSize;
+    }
+
+    /**
+     * Returns the number of cells that are currently burning.
+     *
+     * @return the number of cells on the frontier
+     */
+    public int getFrontierSize() {
+        return frontierSize;
+    }
+
+    /**
+     * Returns the cells that are currently burning, for saving them to a checkpoint.
+     * Only the first {@link #getFrontierSize()} indices are used.
+     *
+     * @return the indices of the cells on the frontier
+     */
+    int[] getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * Replaces the cells that are currently burning with the frontier of a checkpoint.
+     *
+     * @param frontier     the indices of the cells that are burning
+     * @param frontierSize the number of cells that are burning
+     */
+    void restoreFrontier(int[] frontier, int frontierSize) {
+        this.frontier = Arrays.copyOf(frontier, Math.max(16, frontierSize));
+        this.frontierSize = frontierSize;
+        this.nextFrontier = new int[this.frontier.length];
+    }
+
+    /**
+     * Stores a value in the array, growing the array if it is full.
+     *
+     * @param array the array
+     * @param size  the position to store the value at, which is the number of values already in the array
+     * @param value the value to store
+     * @return the array, or a larger copy of it if it was full
+     */
+    private static int[] append(int[] array, int size, int value) {
+        if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = value;
+        return array;
+    }
+}
@@ -0,0 +1,259 @@
+package org.example.program4.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The amount of fuel in every cell of a forest, one byte per cell in row-major order.
+ * A cell with {@value #FULL_FUEL} catches fire with the probability of the spread kernel, a cell with less fuel
+ * with a proportionally smaller probability, and a cell with no fuel, such as a road, a river or bare rock,
+ * never catches fire.
+ * <p>
+ * A map is loaded from either of two files, which are memory-mapped rather than read into the heap:
+ * <ul>
+ *     <li>a binary PGM image ({@code P5}) with at most 8 bits per pixel, where white is full fuel, so a map can be
+ *     drawn in any image editor;</li>
+ *     <li>the compact format written by {@link #save(Path)}: "FUEL", the number of rows and the number of columns
+ *     as 4-byte integers, and then one byte per cell.</li>
+ * </ul>
+ */
+public final class FuelMap {
+
+    /**
+     * The fuel of a cell that burns like a forest without a fuel map.
+     */
+    public static final int FULL_FUEL = 255;
+
+    /**
+     * The first 4 bytes of a map in the compact format, "FUEL".
+     */
+    private static final int MAGIC = 0x4655454C;
+
+    /**
+     * The number of bytes before the first cell in the compact format.
+     */
+    private static final int HEADER_SIZE = 12;
+
+    /**
+     * The number of rows of the map.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the map.
+     */
+    private final int columns;
+
+    /**
+     * The fuel of every cell in row-major order.
+     */
+    private final ByteBuffer fuel;
+
+    /**
+     * Constructs a fuel map from the fuel of every cell.
+     *
+     * @param rows    the number of rows of the map
+     * @param columns the number of columns of the map
+     * @param fuel    the fuel of every cell in row-major order, from 0 to {@value #FULL_FUEL} as an unsigned byte
+     * @throws IllegalArgumentException if there is not one byte per cell
+     */
+    public FuelMap(int rows, int columns, byte[] fuel) {
+        this(rows, columns, ByteBuffer.wrap(fuel));
+    }
+
+    /**
+     * Constructs a fuel map from a buffer holding the fuel of every cell.
+     *
+     * @param rows    the number of rows of the map
+     * @param columns the number of columns of the map
+     * @param fuel    the fuel of every cell in row-major order
+     * @throws IllegalArgumentException if there is not one byte per cell
+     */
+    private FuelMap(int rows, int columns, ByteBuffer fuel) {
+        if (rows <= 0 || columns <= 0 || (long) rows * columns != fuel.remaining()) {
+            throw new IllegalArgumentException("A fuel map of " + rows + " x " + columns + " cells needs one byte per cell: "
+                    + fuel.remaining() + " bytes");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.fuel = fuel.slice();
+    }
+
+    /**
+     * Loads a fuel map from a PGM image or a file in the compact format.
+     *
+     * @param file the file the map is stored in
+     * @return the fuel map
+     * @throws IOException if the file cannot be read or is neither a binary PGM image nor a fuel map
+     */
+    public static FuelMap load(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() >= HEADER_SIZE && buffer.getInt(0) == MAGIC) {
+            int rows = buffer.getInt(4);
+            int columns = buffer.getInt(8);
+            return fromFile(file, rows, columns, buffer.position(HEADER_SIZE));
+        }
+        if (buffer.remaining() >= 2 && buffer.get(0) == 'P' && buffer.get(1) == '5') {
+            return loadPgm(file, buffer.position(2));
+        }
+        throw new IOException("Neither a binary PGM image nor a fuel map: " + file);
+    }
+
+    /**
+     * Reads the rest of a binary PGM image, whose header is the width, the height and the largest value in ASCII.
+     *
+     * @param file   the file the map is stored in
+     * @param buffer the mapped file, positioned after "P5"
+     * @return the fuel map
+     * @throws IOException if the image is broken or has more than 8 bits per pixel
+     */
+    private static FuelMap loadPgm(Path file, ByteBuffer buffer) throws IOException {
+        int columns = readPgmNumber(file, buffer);
+        int rows = readPgmNumber(file, buffer);
+        int maxValue = readPgmNumber(file, buffer);
+        if (maxValue <= 0 || maxValue > FULL_FUEL) {
+            throw new IOException("Only PGM images with 8 bits per pixel are supported: " + file);
+        }
+        // A single whitespace character separates the header from the pixels
+        if (!buffer.hasRemaining() || !Character.isWhitespace(buffer.get())) {
+            throw new IOException("Broken PGM header: " + file);
+        }
+        if (maxValue == FULL_FUEL) {
+            return fromFile(file, rows, columns, buffer);
+        }
+        // Scale the pixels so that the largest value is full fuel, which takes a copy on the heap
+        byte[] fuel = new byte[buffer.remaining()];
+        for (int i = 0; i < fuel.length; i++) {
+            fuel[i] = (byte) Math.min(FULL_FUEL, ((buffer.get() & 0xFF) * FULL_FUEL + maxValue / 2) / maxValue);
+        }
+        return fromFile(file, rows, columns, ByteBuffer.wrap(fuel));
+    }
+
+    /**
+     * Reads a number of the header of a PGM image, skipping the whitespace and comments before it.
+     *
+     * @param file   the file the map is stored in
+     * @param buffer the mapped file, positioned before the number
+     * @return the number
+     * @throws IOException if the header ends before the number
+     */
+    private static int readPgmNumber(Path file, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int c = buffer.get(buffer.position());
+            if (c == '#') {
+                // Comments run to the end of the line
+                while (buffer.hasRemaining() && buffer.get() != '\n') {
+                    // Skip the comment
+                }
+            } else if (Character.isWhitespace(c)) {
+                buffer.get();
+            } else {
+                break;
+            }
+        }
+        long number = 0;
+        int digits = 0;
+        while (buffer.hasRemaining() && Character.isDigit(buffer.get(buffer.position())) && number <= Integer.MAX_VALUE) {
+            number = number * 10 + (buffer.get() - '0');
+            digits++;
+        }
+        if (digits == 0 || number > Integer.MAX_VALUE) {
+            throw new IOException("Broken PGM header: " + file);
+        }
+        return (int) number;
+    }
+
+    /**
+     * Constructs a fuel map from the cells of a file.
+     *
+     * @param file    the file the map is stored in
+     * @param rows    the number of rows of the map
+     * @param columns the number of columns of the map
+     * @param fuel    the cells, from the current position to the limit
+     * @return the fuel map
+     * @throws IOException if the file does not hold one byte per cell
+     */
+    private static FuelMap fromFile(Path file, int rows, int columns, ByteBuffer fuel) throws IOException {
+        try {
+            return new FuelMap(rows, columns, fuel);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("The fuel map is incomplete: " + file, e);
+        }
+    }
+
+    /**
+     * Saves the map in the compact format, replacing any existing file.
+     *
+     * @param file the file to save the map to
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + fuel.capacity())
+                    .putInt(MAGIC)
+                    .putInt(rows)
+                    .putInt(columns)
+                    .put(fuel.duplicate().clear());
+        }
+    }
+
+    /**
+     * Returns the number of rows of the map.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the map.
+     *
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the fuel of the cell at the specified coordinates.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the fuel, from 0 to {@value #FULL_FUEL}
+     */
+    public int getFuel(int i, int j) {
+        return getFuel(i * columns + j);
+    }
+
+    /**
+     * Returns the fuel of the cell at the specified index in row-major order.
+     *
+     * @param index the index of the cell
+     * @return the fuel, from 0 to {@value #FULL_FUEL}
+     */
+    int getFuel(int index) {
+        return fuel.get(index) & 0xFF;
+    }
+
+    /**
+     * Checks if the map covers a forest of the specified size.
+     *
+     * @param engine the forest
+     * @throws IllegalArgumentException if the map and the forest have a different number of rows or columns
+     */
+    void checkSize(SimulationEngine engine) {
+        if (rows != engine.getRows() || columns != engine.getColumns()) {
+            throw new IllegalArgumentException("The fuel map has " + rows + " x " + columns + " cells but the forest has "
+                    + engine.getRows() + " x " + engine.getColumns());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.program4.engine;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A random number source for deciding whether a cell catches fire.
+ * Instead of drawing numbers one after another from a shared generator, every number is computed from
+ * the seed, the simulation cycle, the cell catching fire and the direction the fire spreads in.
+ * The same attempt always gets the same number, so any thread can decide any cell without shared state,
+ * and a run can be reproduced from its seed no matter how many threads stepped it or in which order.
+ * <p>
+ * The numbers are made by mixing the key with the finalizer of the SplitMix64 generator,
+ * which is the same mix used by {@link java.util.SplittableRandom}.
+ */
+public final class IgnitionRandom {
+
+    /**
+     * The odd constant the keys are spread with, the golden ratio scaled to 64 bits.
+     */
+    static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The first multiplier of the mixing function.
+     */
+    static final long MIX_MULTIPLIER_1 = 0xBF58476D1CE4E5B9L;
+
+    /**
+     * The second multiplier of the mixing function.
+     */
+    static final long MIX_MULTIPLIER_2 = 0x94D049BB133111EBL;
+
+    /**
+     * The seed that every random number is derived from.
+     */
+    private final long seed;
+
+    /**
+     * Constructs a new IgnitionRandom with a random seed.
+     */
+    public IgnitionRandom() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Constructs a new IgnitionRandom with the specified seed.
+     *
+     * @param seed the seed that every random number is derived from
+     */
+    public IgnitionRandom(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the seed that every random number is derived from.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the key shared by every attempt made during the specified simulation cycle.
+     * Callers that make many attempts in the same cycle can compute it once and use {@link #nextLong(long, long, Forest.WindDirection)}.
+     *
+     * @param cycle the simulation cycle
+     * @return the key of the cycle
+     */
+    public long cycleKey(long cycle) {
+        return deriveSeed(seed, cycle);
+    }
+
+    /**
+     * Derives an independent seed from a seed and an index, for example the seed of each run in a batch of runs.
+     *
+     * @param seed  the seed to derive from
+     * @param index the index of the derived seed
+     * @return the derived seed
+     */
+    public static long deriveSeed(long seed, long index) {
+        return mix64(seed + index * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Returns 64 random bits for an attempt to set a cell on fire.
+     *
+     * @param cycleKey  the key of the simulation cycle, from {@link #cycleKey(long)}
+     * @param cell      the index of the cell catching fire in row-major order
+     * @param direction the direction the fire spreads in to reach the cell
+     * @return the random bits
+     */
+    public static long nextLong(long cycleKey, long cell, Forest.WindDirection direction) {
+        return mix64(cycleKey + ((cell << 2) | direction.ordinal()) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Returns a random number between 0.0 (inclusive) and 1.0 (exclusive) for an attempt to set a cell on fire.
+     *
+     * @param cycle     the simulation cycle
+     * @param cell      the index of the cell catching fire in row-major order
+     * @param direction the direction the fire spreads in to reach the cell
+     * @return the random number
+     */
+    public double nextDouble(long cycle, long cell, Forest.WindDirection direction) {
+        return toDouble(nextLong(cycleKey(cycle), cell, direction));
+    }
+
+    /**
+     * Converts 64 random bits to a random number between 0.0 (inclusive) and 1.0 (exclusive)
+     * in the same way as {@link java.util.Random#nextDouble()}.
+     *
+     * @param bits the random bits
+     * @return the random number
+     */
+    public static double toDouble(long bits) {
+        return (bits >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Mixes the bits of the value so that nearby values give unrelated results.
+     *
+     * @param z the value to mix
+     * @return the mixed value
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * MIX_MULTIPLIER_1;
+        z = (z ^ (z >>> 27)) * MIX_MULTIPLIER_2;
+        return z ^ (z >>> 31);
+    }
+}
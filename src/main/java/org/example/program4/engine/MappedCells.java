@@ -0,0 +1,155 @@
+package org.example.program4.engine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One byte per cell stored in a memory-mapped file instead of on the heap.
+ * A single mapping is limited to 2 GiB, so the file is mapped in chunks of {@link #CHUNK_SIZE} bytes.
+ * <p>
+ * The file is created empty and grown to its full size, so on most file systems it is sparse: pages the fire
+ * never touches are neither written to disk nor loaded into memory, and read as zero, which is an untouched cell.
+ */
+final class MappedCells implements AutoCloseable {
+
+    /**
+     * The number of bits of a cell index that address a byte inside a chunk.
+     */
+    private static final int CHUNK_SHIFT = 30;
+
+    /**
+     * The number of bytes in each mapped chunk.
+     */
+    static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    /**
+     * The mask for the bits of a cell index that address a byte inside a chunk.
+     */
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * The channel of the file the cells are stored in.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The mapped chunks of the file.
+     */
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * The number of cells.
+     */
+    private final long size;
+
+    /**
+     * Creates a file for the specified number of cells, replacing any existing file, and maps it into memory.
+     * Every cell starts as zero.
+     *
+     * @param file the file the cells are stored in
+     * @param size the number of cells
+     * @throws IOException if the file cannot be created or mapped
+     * @throws IllegalArgumentException if there are more cells than can be mapped
+     */
+    MappedCells(Path file, long size) throws IOException {
+        long chunkCount = (size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        if (chunkCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("At most " + ((long) Integer.MAX_VALUE << CHUNK_SHIFT) + " cells can be mapped, not " + size);
+        }
+        this.size = size;
+        this.chunks = new MappedByteBuffer[(int) chunkCount];
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            for (int c = 0; c < chunkCount; c++) {
+                long start = (long) c << CHUNK_SHIFT;
+                // Mapping past the end of the file grows it, without writing the bytes in between
+                chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(CHUNK_SIZE, size - start));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of cells.
+     *
+     * @return the number of cells
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Returns the byte of the specified cell.
+     *
+     * @param index the index of the cell
+     * @return the byte of the cell
+     */
+    byte get(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    /**
+     * Sets the byte of the specified cell.
+     *
+     * @param index the index of the cell
+     * @param value the new byte of the cell
+     */
+    void put(long index, byte value) {
+        chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+    }
+
+    /**
+     * Writes the cells that changed in memory back to the file.
+     */
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Copies every cell into a file, starting at the specified position of the file.
+     *
+     * @param out      the file to copy the cells into, opened for reading and writing
+     * @param position the position of the first cell in the file
+     * @throws IOException if the file cannot be written
+     */
+    void copyTo(FileChannel out, long position) throws IOException {
+        for (int c = 0; c < chunks.length; c++) {
+            MappedByteBuffer chunk = chunks[c];
+            out.map(FileChannel.MapMode.READ_WRITE, position + ((long) c << CHUNK_SHIFT), chunk.capacity())
+                    .put(chunk.duplicate().clear());
+        }
+    }
+
+    /**
+     * Replaces every cell with the cells stored in a file, starting at the specified position of the file.
+     *
+     * @param in       the file to copy the cells from
+     * @param position the position of the first cell in the file
+     * @throws IOException if the file cannot be read
+     */
+    void copyFrom(FileChannel in, long position) throws IOException {
+        for (int c = 0; c < chunks.length; c++) {
+            MappedByteBuffer chunk = chunks[c];
+            chunk.duplicate().clear()
+                    .put(in.map(FileChannel.MapMode.READ_ONLY, position + ((long) c << CHUNK_SHIFT), chunk.capacity()));
+        }
+    }
+
+    /**
+     * Closes the file. The mapped memory is released once the chunks are garbage collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
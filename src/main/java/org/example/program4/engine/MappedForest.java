@@ -0,0 +1,372 @@
+package org.example.program4.engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A frontier forest whose cells are stored off the heap in a memory-mapped file, one byte per cell in the same
+ * format as {@link PackedForest}. Cell indices are longs, so the grid can have up to 100,000 x 100,000 cells or more,
+ * far beyond what fits in a Java array or the heap. Only the frontier, the list of burning cells, is kept on the heap.
+ * <p>
+ * The operating system pages in only the parts of the file the fire is touching. A fire that burns a small part of
+ * a huge forest uses little memory, and the rest of the file is never written.
+ * <p>
+ * The ignitions are drawn exactly like in the other engines, so a seed gives the same fire as a {@link FrontierForest}
+ * of the same size. The forest must be closed when it is no longer used to release the file.
+ */
+public class MappedForest implements SimulationEngine, AutoCloseable {
+
+    /**
+     * The number of rows of the grid that represents the forest.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the grid that represents the forest.
+     */
+    private final int columns;
+
+    /**
+     * The packed cells of the forest in row-major order.
+     */
+    private final MappedCells cells;
+
+    /**
+     * The file the cells are stored in, or null if the file is kept after the forest is closed.
+     */
+    private final Path temporaryFile;
+
+    /**
+     * A random number source used for determining whether a cell catches fire.
+     */
+    private final IgnitionRandom random;
+
+    /**
+     * The key of the current simulation cycle in the random number source.
+     */
+    private long cycleKey;
+
+    /**
+     * The probabilities of the fire spreading in each direction.
+     */
+    private SpreadKernel kernel = new SpreadKernel(0.3, Forest.WindDirection.NORTH);
+
+    /**
+     * The number of simulation cycles.
+     */
+    private int simulationCycles;
+
+    /**
+     * The indices of the cells that are burning at the start of the current simulation cycle.
+     */
+    private long[] frontier = new long[16];
+
+    /**
+     * The number of cells on the frontier.
+     */
+    private int frontierSize;
+
+    /**
+     * The indices of the cells that will be burning at the start of the next simulation cycle.
+     */
+    private long[] nextFrontier = new long[16];
+
+    /**
+     * The number of cells on the next frontier.
+     */
+    private int nextFrontierSize;
+
+    /**
+     * Constructs a new MappedForest with the specified number of rows and columns where every cell is untouched.
+     * The cells are stored in a temporary file that is deleted when the forest is closed.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param seed    the seed that every random number is derived from
+     * @throws IOException if the temporary file cannot be created
+     */
+    public MappedForest(int rows, int columns, long seed) throws IOException {
+        this(rows, columns, seed, createTemporaryFile(rows, columns), true);
+    }
+
+    /**
+     * Constructs a new MappedForest with the specified number of rows and columns where every cell is untouched.
+     * The cells are stored in the specified file, replacing its contents, and the file is kept when the forest is closed.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param seed    the seed that every random number is derived from
+     * @param file    the file the cells are stored in
+     * @throws IOException if the file cannot be created
+     */
+    public MappedForest(int rows, int columns, long seed, Path file) throws IOException {
+        this(rows, columns, seed, file, false);
+    }
+
+    /**
+     * Constructs a new MappedForest that stores its cells in the specified file.
+     *
+     * @param rows      the number of rows of the grid that represents the forest
+     * @param columns   the number of columns of the grid that represents the forest
+     * @param seed      the seed that every random number is derived from
+     * @param file      the file the cells are stored in
+     * @param temporary whether the file is deleted when the forest is closed
+     * @throws IOException if the file cannot be created
+     */
+    private MappedForest(int rows, int columns, long seed, Path file, boolean temporary) throws IOException {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("The forest must have at least one row and one column: " + rows + " x " + columns);
+        }
+        this.rows = rows;
+        this.columns = columns;
+        try {
+            this.cells = new MappedCells(file, (long) rows * columns);
+        } catch (IOException | RuntimeException e) {
+            // The forest is never returned, so nothing else could delete the temporary file
+            if (temporary) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        this.temporaryFile = temporary ? file : null;
+        this.random = new IgnitionRandom(seed);
+    }
+
+    /**
+     * Creates the temporary file for a forest of the specified size, after checking the size
+     * so no file is left behind for a forest that cannot be constructed.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @return the temporary file
+     * @throws IOException if the file cannot be created
+     */
+    private static Path createTemporaryFile(int rows, int columns) throws IOException {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("The forest must have at least one row and one column: " + rows + " x " + columns);
+        }
+        return Files.createTempFile("forest", ".cells");
+    }
+
+    /**
+     * Returns the index of the specified cell in row-major order.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the index of the cell
+     */
+    private long index(int i, int j) {
+        return (long) i * columns + j;
+    }
+
+    @Override
+    public ForestCell.State getState(int i, int j) {
+        return PackedForest.STATES[cells.get(index(i, j)) & PackedForest.STATE_MASK];
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int getSimulationCycles() {
+        return simulationCycles;
+    }
+
+    @Override
+    public void setSpreadKernel(SpreadKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void startFire(int i, int j) {
+        long index = index(i, j);
+        // Do not add the cell twice if the fire is started again in the same cell
+        if ((cells.get(index) & PackedForest.STATE_MASK) != PackedForest.BURNING) {
+            frontier = append(frontier, frontierSize++, index);
+        }
+        cells.put(index, (byte) PackedForest.BURNING);
+        // This is the first cycle of the simulation
+        simulationCycles = 1;
+    }
+
+    @Override
+    public boolean step() {
+        nextFrontierSize = 0;
+        cycleKey = random.cycleKey(simulationCycles);
+        long north = kernel.getThreshold(Forest.WindDirection.NORTH);
+        long south = kernel.getThreshold(Forest.WindDirection.SOUTH);
+        long west = kernel.getThreshold(Forest.WindDirection.WEST);
+        long east = kernel.getThreshold(Forest.WindDirection.EAST);
+        for (int k = 0; k < frontierSize; k++) {
+            long index = frontier[k];
+            long i = index / columns;
+            long j = index % columns;
+            // Check and burn the cells in each direction
+            if (i > 0) {
+                burnCell(index - columns, Forest.WindDirection.NORTH, north);
+            }
+            if (i < rows - 1) {
+                burnCell(index + columns, Forest.WindDirection.SOUTH, south);
+            }
+            if (j > 0) {
+                burnCell(index - 1, Forest.WindDirection.WEST, west);
+            }
+            if (j < columns - 1) {
+                burnCell(index + 1, Forest.WindDirection.EAST, east);
+            }
+            // Increment burn duration for the current cell and set it to scorched once it has burned for 2 cycles
+            int cell = cells.get(index) + PackedForest.BURN_DURATION_UNIT;
+            if ((cell & PackedForest.BURN_DURATION_MASK) == 2 * PackedForest.BURN_DURATION_UNIT) {
+                cell = (cell & ~PackedForest.STATE_MASK) | PackedForest.SCORCHED;
+            } else {
+                // Keep the cell on the frontier until it is scorched
+                nextFrontier = append(nextFrontier, nextFrontierSize++, index);
+            }
+            cells.put(index, (byte) cell);
+        }
+
+        // The next frontier becomes the current frontier
+        long[] swap = frontier;
+        frontier = nextFrontier;
+        frontierSize = nextFrontierSize;
+        nextFrontier = swap;
+
+        simulationCycles++;
+        return frontierSize > 0;
+    }
+
+    @Override
+    public boolean isStillBurning() {
+        return frontierSize > 0;
+    }
+
+    /**
+     * Sets the specified cell to burning based on the given adjusted probability
+     * and adds it to the next frontier if it catches fire.
+     *
+     * @param index     the index of the specified cell
+     * @param direction the direction the fire spreads in to reach the specified cell
+     * @param threshold the cut-off of the adjusted probability of the fire spreading to the specified cell
+     */
+    private void burnCell(long index, Forest.WindDirection direction, long threshold) {
+        if ((cells.get(index) & PackedForest.STATE_MASK) == PackedForest.UNTOUCHED
+                && SpreadKernel.ignites(IgnitionRandom.nextLong(cycleKey, index, direction), threshold)) {
+            cells.put(index, (byte) PackedForest.BURNING);
+            nextFrontier = append(nextFrontier, nextFrontierSize++, index);
+        }
+    }
+
+    @Override
+    public long getBurningCount() {
+        return frontierSize;
+    }
+
+    /**
+     * Returns the number of cells that are currently burning.
+     *
+     * @return the number of cells on the frontier
+     */
+    public int getFrontierSize() {
+        return frontierSize;
+    }
+
+    /**
+     * Returns the cells of the forest, for saving them to a checkpoint.
+     *
+     * @return the packed cells of the forest
+     */
+    MappedCells getCells() {
+        return cells;
+    }
+
+    /**
+     * Returns the probabilities of the fire spreading in each direction, for saving them to a checkpoint.
+     *
+     * @return the spread kernel
+     */
+    SpreadKernel getSpreadKernel() {
+        return kernel;
+    }
+
+    /**
+     * Returns the seed that every random number is derived from, for saving it to a checkpoint.
+     *
+     * @return the seed
+     */
+    long getSeed() {
+        return random.getSeed();
+    }
+
+    /**
+     * Returns the cells that are currently burning, for saving them to a checkpoint.
+     * Only the first {@link #getFrontierSize()} indices are used.
+     *
+     * @return the indices of the cells on the frontier
+     */
+    long[] getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * Continues a simulation restored from a checkpoint, whose cells have already been copied into the forest.
+     *
+     * @param simulationCycles the number of simulation cycles
+     * @param frontier         the indices of the cells that are burning
+     * @param frontierSize     the number of cells that are burning
+     */
+    void restore(int simulationCycles, long[] frontier, int frontierSize) {
+        this.simulationCycles = simulationCycles;
+        this.frontier = Arrays.copyOf(frontier, Math.max(16, frontierSize));
+        this.frontierSize = frontierSize;
+        this.nextFrontier = new long[this.frontier.length];
+    }
+
+    /**
+     * Writes the cells that changed in memory back to the file.
+     */
+    public void flush() {
+        cells.force();
+    }
+
+    /**
+     * Closes the file the cells are stored in, and deletes it if it is a temporary file.
+     *
+     * @throws IOException if the file cannot be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        cells.close();
+        if (temporaryFile != null) {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Stores a value in the array, growing the array if it is full.
+     *
+     * @param array the array
+     * @param size  the position to store the value at, which is the number of values already in the array
+     * @param value the value to store
+     * @return the array, or a larger copy of it if it was full
+     */
+    private static long[] append(long[] array, int size, long value) {
+        if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = value;
+        return array;
+    }
+}
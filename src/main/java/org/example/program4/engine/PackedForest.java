@@ -0,0 +1,339 @@
+package org.example.program4.engine;
+
+/**
+ * A forest that stores every cell in one byte of a single row-major array instead of a grid of {@link ForestCell} objects.
+ * This takes one byte per cell instead of a separate object per cell, so very large grids fit in memory
+ * and the simulation cycle walks memory in order.
+ * <p>
+ * Each byte is packed as follows:
+ * - bits 0-1: the state of the cell (the ordinal of {@link ForestCell.State})
+ * - bits 2-3: the burn duration of the cell
+ * - bit 4: the parity of the simulation cycle in which the cell caught fire
+ * <p>
+ * The parity bit lets a single pass over the grid skip cells that caught fire during the current cycle,
+ * so the fire spreads exactly like in {@link Forest} without taking a snapshot of the burning cells first.
+ */
+public class PackedForest implements SimulationEngine {
+
+    /**
+     * The mask for the state bits of a cell.
+     */
+    static final int STATE_MASK = 0b11;
+
+    /**
+     * The state bits of an untouched cell.
+     */
+    static final int UNTOUCHED = 0;
+
+    /**
+     * The state bits of a burning cell.
+     */
+    static final int BURNING = 1;
+
+    /**
+     * The state bits of a scorched cell.
+     */
+    static final int SCORCHED = 2;
+
+    /**
+     * The amount a burn duration of 1 adds to a packed cell.
+     */
+    static final int BURN_DURATION_UNIT = 1 << 2;
+
+    /**
+     * The mask for the burn duration bits of a cell.
+     */
+    static final int BURN_DURATION_MASK = 0b11 << 2;
+
+    /**
+     * The bit that holds the parity of the simulation cycle in which the cell caught fire.
+     */
+    static final int PARITY_BIT = 1 << 4;
+
+    /**
+     * The states of a cell, indexed by the state bits.
+     */
+    static final ForestCell.State[] STATES = ForestCell.State.values();
+
+    /**
+     * The number of rows of the grid that represents the forest.
+     */
+    protected final int rows;
+
+    /**
+     * The number of columns of the grid that represents the forest.
+     */
+    protected final int columns;
+
+    /**
+     * The packed cells of the forest in row-major order.
+     */
+    protected final byte[] cells;
+
+    /**
+     * A random number source used for determining whether a cell catches fire.
+     */
+    protected final IgnitionRandom random;
+
+    /**
+     * The key of the current simulation cycle in the random number source.
+     */
+    protected long cycleKey;
+
+    /**
+     * The probabilities of the fire spreading in each direction.
+     */
+    protected SpreadKernel kernel = new SpreadKernel(0.3, Forest.WindDirection.NORTH);
+
+    /**
+     * The fuel of every cell, or null if every cell has full fuel.
+     */
+    protected FuelMap fuelMap;
+
+    /**
+     * The number of simulation cycles.
+     */
+    protected int simulationCycles;
+
+    /**
+     * The parity bit given to cells that catch fire during the current simulation cycle.
+     */
+    private int ignitionParity;
+
+    /**
+     * The number of cells in each state, updated whenever a cell changes state.
+     */
+    protected final StateCounts counts;
+
+    /**
+     * The cells whose state changed during the last simulation cycle.
+     */
+    protected final CellChanges changes = new CellChanges();
+
+    /**
+     * Constructs a new PackedForest with the specified grid size where every cell is untouched.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     */
+    public PackedForest(int gridSize) {
+        this(gridSize, gridSize, new IgnitionRandom());
+    }
+
+    /**
+     * Constructs a new PackedForest with the specified grid size where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     * @param seed     the seed that every random number is derived from
+     */
+    public PackedForest(int gridSize, long seed) {
+        this(gridSize, gridSize, seed);
+    }
+
+    /**
+     * Constructs a new rectangular PackedForest with the specified number of rows and columns where every cell is untouched.
+     * Forests constructed with the same seed and spread parameters burn the same way.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param seed    the seed that every random number is derived from
+     */
+    public PackedForest(int rows, int columns, long seed) {
+        this(rows, columns, new IgnitionRandom(seed));
+    }
+
+    /**
+     * Constructs a new PackedForest with the specified number of rows and columns and random number source.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param random  the random number source used for determining whether a cell catches fire
+     */
+    private PackedForest(int rows, int columns, IgnitionRandom random) {
+        this.rows = rows;
+        this.columns = columns;
+        this.cells = new byte[Math.multiplyExact(rows, columns)];
+        this.random = random;
+        this.counts = new StateCounts(cells.length);
+    }
+
+    /**
+     * Returns the index of the specified cell in the row-major array.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the index of the cell
+     */
+    protected final int index(int i, int j) {
+        return i * columns + j;
+    }
+
+    @Override
+    public ForestCell.State getState(int i, int j) {
+        return STATES[cells[index(i, j)] & STATE_MASK];
+    }
+
+    @Override
+    public CellChanges getChangedCells() {
+        return changes;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int getSimulationCycles() {
+        return simulationCycles;
+    }
+
+    @Override
+    public void setSpreadKernel(SpreadKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void setFuelMap(FuelMap fuelMap) {
+        if (fuelMap != null) {
+            fuelMap.checkSize(this);
+        }
+        this.fuelMap = fuelMap;
+    }
+
+    @Override
+    public void startFire(int i, int j) {
+        // This is the first cycle of the simulation
+        simulationCycles = 1;
+        ignitionParity = (simulationCycles & 1) == 0 ? 0 : PARITY_BIT;
+        counts.move(cells[index(i, j)] & STATE_MASK, BURNING);
+        cells[index(i, j)] = (byte) (BURNING | ignitionParity);
+        changes.clear();
+        changes.add(index(i, j));
+    }
+
+    @Override
+    public boolean step() {
+        // Cells that catch fire during this cycle get the parity of the next cycle,
+        // so they are told apart from cells that caught fire during the previous cycle
+        ignitionParity = ((simulationCycles + 1) & 1) == 0 ? 0 : PARITY_BIT;
+        cycleKey = random.cycleKey(simulationCycles);
+        changes.clear();
+        for (int i = 0; i < rows; i++) {
+            int rowStart = i * columns;
+            for (int j = 0; j < columns; j++) {
+                int cell = cells[rowStart + j];
+                if ((cell & STATE_MASK) == BURNING) {
+                    // Skip cells that caught fire during this cycle, they start spreading next cycle
+                    if ((cell & BURN_DURATION_MASK) == 0 && (cell & PARITY_BIT) == ignitionParity) {
+                        continue;
+                    }
+                    burnAdjacent(i, j, kernel);
+                }
+            }
+        }
+        simulationCycles++;
+        return isStillBurning();
+    }
+
+    @Override
+    public boolean isStillBurning() {
+        return counts.anyBurning();
+    }
+
+    @Override
+    public long getBurningCount() {
+        return counts.get(ForestCell.State.BURNING);
+    }
+
+    @Override
+    public long getStateCount(ForestCell.State state) {
+        return counts.get(state);
+    }
+
+    /**
+     * Attempts to spread the fire from the specified cell to its adjacent cells.
+     * The fire can spread to the north, south, east, or west of the specified cell.
+     * The probability of the fire spreading to an adjacent cell is adjusted based on the wind direction.
+     *
+     * @param i             the x-coordinate of the specified cell
+     * @param j             the y-coordinate of the specified cell
+     * @param probability   the initial probability of the fire spreading to an adjacent cell
+     * @param windDirection the direction of the wind
+     */
+    public void burnAdjacent(int i, int j, double probability, String windDirection) {
+        cycleKey = random.cycleKey(simulationCycles);
+        burnAdjacent(i, j, new SpreadKernel(probability, Forest.WindDirection.valueOf(windDirection.toUpperCase())));
+    }
+
+    /**
+     * Attempts to spread the fire from the specified cell to its adjacent cells,
+     * using the precomputed probabilities of the spread kernel.
+     *
+     * @param i      the x-coordinate of the specified cell
+     * @param j      the y-coordinate of the specified cell
+     * @param kernel the probabilities of the fire spreading in each direction
+     */
+    protected void burnAdjacent(int i, int j, SpreadKernel kernel) {
+        int index = index(i, j);
+        if ((cells[index] & STATE_MASK) != BURNING) {
+            return;
+        }
+        // Check and burn the cells in each direction
+        if (i > 0) {
+            burnCell(index - columns, Forest.WindDirection.NORTH, kernel.getThreshold(Forest.WindDirection.NORTH));
+        }
+        if (i < rows - 1) {
+            burnCell(index + columns, Forest.WindDirection.SOUTH, kernel.getThreshold(Forest.WindDirection.SOUTH));
+        }
+        if (j > 0) {
+            burnCell(index - 1, Forest.WindDirection.WEST, kernel.getThreshold(Forest.WindDirection.WEST));
+        }
+        if (j < columns - 1) {
+            burnCell(index + 1, Forest.WindDirection.EAST, kernel.getThreshold(Forest.WindDirection.EAST));
+        }
+        // Increment burn duration for the current cell and set it to scorched once it has burned for 2 cycles
+        int cell = cells[index] + BURN_DURATION_UNIT;
+        if ((cell & BURN_DURATION_MASK) == 2 * BURN_DURATION_UNIT) {
+            cell = (cell & ~STATE_MASK) | SCORCHED;
+            counts.move(BURNING, SCORCHED);
+            changes.add(index);
+        }
+        cells[index] = (byte) cell;
+    }
+
+    /**
+     * Sets the specified cell to burning based on the given adjusted probability.
+     *
+     * @param index     the index of the specified cell
+     * @param direction the direction the fire spreads in to reach the specified cell
+     * @param threshold the cut-off of the adjusted probability of the fire spreading to the specified cell
+     */
+    protected void burnCell(int index, Forest.WindDirection direction, long threshold) {
+        if ((cells[index] & STATE_MASK) == UNTOUCHED && ignites(index, direction, threshold)) {
+            cells[index] = (byte) (BURNING | ignitionParity);
+            counts.move(UNTOUCHED, BURNING);
+            changes.add(index);
+        }
+    }
+
+    /**
+     * Decides an attempt to set the specified cell on fire during the current cycle,
+     * scaling the cut-off by the fuel of the cell if there is a fuel map.
+     *
+     * @param index     the index of the cell catching fire
+     * @param direction the direction the fire spreads in to reach the cell
+     * @param threshold the cut-off of the adjusted probability of the fire spreading in that direction
+     * @return true if the cell catches fire
+     */
+    protected final boolean ignites(int index, Forest.WindDirection direction, long threshold) {
+        long bits = IgnitionRandom.nextLong(cycleKey, index, direction);
+        return fuelMap == null ? SpreadKernel.ignites(bits, threshold)
+                : SpreadKernel.ignites(bits, threshold, fuelMap.getFuel(index));
+    }
+}
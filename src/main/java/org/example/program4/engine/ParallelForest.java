@@ -0,0 +1,339 @@
+package org.example.program4.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A packed forest that steps the grid with two buffers: every cell of the next simulation cycle is computed
+ * only from the cells of the current cycle. The result does not depend on the order the cells are visited in,
+ * so the grid is split into bands of rows that are stepped in parallel on a fork-join pool.
+ * <p>
+ * Every attempt draws its number from {@link IgnitionRandom}, keyed on the cycle, the cell and the direction,
+ * so the bands share no random state and a given seed gives the same result no matter how many threads are used.
+ * <p>
+ * An untouched cell catches fire if any of its burning neighbours spreads the fire to it. This is the same rule as
+ * in {@link Forest}, where each burning neighbour gets one attempt, looked at from the cell catching fire.
+ */
+public class ParallelForest implements SimulationEngine {
+
+    /**
+     * The number of rows in each band of the grid.
+     */
+    static final int BAND_ROWS = 64;
+
+    /**
+     * The number of rows of the grid that represents the forest.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the grid that represents the forest.
+     */
+    private final int columns;
+
+    /**
+     * The number of bands the grid is split into.
+     */
+    private final int bandCount;
+
+    /**
+     * The packed cells of the current simulation cycle, in the same format as {@link PackedForest}.
+     */
+    private byte[] current;
+
+    /**
+     * The packed cells of the next simulation cycle.
+     */
+    private byte[] next;
+
+    /**
+     * A random number source used for determining whether a cell catches fire.
+     */
+    private final IgnitionRandom random;
+
+    /**
+     * The key of the current simulation cycle in the random number source.
+     */
+    private long cycleKey;
+
+    /**
+     * The pool the bands are stepped on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The cut-offs of the adjusted probabilities of the fire spreading north, south, west and east during the current cycle.
+     */
+    private long north, south, west, east;
+
+    /**
+     * The probabilities of the fire spreading in each direction.
+     */
+    private SpreadKernel kernel = new SpreadKernel(0.3, Forest.WindDirection.NORTH);
+
+    /**
+     * The fuel of every cell, or null if every cell has full fuel.
+     */
+    private FuelMap fuelMap;
+
+    /**
+     * The number of simulation cycles.
+     */
+    private int simulationCycles;
+
+    /**
+     * The number of cells in each state, updated at the end of every simulation cycle.
+     */
+    private final StateCounts counts;
+
+    /**
+     * The number of cells of each band that caught fire during the last simulation cycle,
+     * written by the thread that stepped the band.
+     */
+    private final long[] bandIgnitions;
+
+    /**
+     * The number of cells of each band that were scorched during the last simulation cycle,
+     * written by the thread that stepped the band.
+     */
+    private final long[] bandScorches;
+
+    /**
+     * Constructs a new ParallelForest with the specified grid size and seed that is stepped on the common pool.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     * @param seed     the seed that every random number is derived from
+     */
+    public ParallelForest(int gridSize, long seed) {
+        this(gridSize, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new ParallelForest with the specified grid size and seed that is stepped on the given pool.
+     *
+     * @param gridSize the size of the grid that represents the forest
+     * @param seed     the seed that every random number is derived from
+     * @param pool     the pool the bands are stepped on
+     */
+    public ParallelForest(int gridSize, long seed, ForkJoinPool pool) {
+        this(gridSize, gridSize, seed, pool);
+    }
+
+    /**
+     * Constructs a new rectangular ParallelForest with the specified number of rows and columns and seed
+     * that is stepped on the given pool.
+     *
+     * @param rows    the number of rows of the grid that represents the forest
+     * @param columns the number of columns of the grid that represents the forest
+     * @param seed    the seed that every random number is derived from
+     * @param pool    the pool the bands are stepped on
+     */
+    public ParallelForest(int rows, int columns, long seed, ForkJoinPool pool) {
+        this.rows = rows;
+        this.columns = columns;
+        this.bandCount = (rows + BAND_ROWS - 1) / BAND_ROWS;
+        this.current = new byte[Math.multiplyExact(rows, columns)];
+        this.next = new byte[current.length];
+        this.random = new IgnitionRandom(seed);
+        this.pool = pool;
+        this.counts = new StateCounts(current.length);
+        this.bandIgnitions = new long[bandCount];
+        this.bandScorches = new long[bandCount];
+    }
+
+    @Override
+    public ForestCell.State getState(int i, int j) {
+        return PackedForest.STATES[current[i * columns + j] & PackedForest.STATE_MASK];
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int getSimulationCycles() {
+        return simulationCycles;
+    }
+
+    @Override
+    public void setSpreadKernel(SpreadKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void setFuelMap(FuelMap fuelMap) {
+        if (fuelMap != null) {
+            fuelMap.checkSize(this);
+        }
+        this.fuelMap = fuelMap;
+    }
+
+    @Override
+    public void startFire(int i, int j) {
+        counts.move(current[i * columns + j] & PackedForest.STATE_MASK, PackedForest.BURNING);
+        current[i * columns + j] = PackedForest.BURNING;
+        // This is the first cycle of the simulation
+        simulationCycles = 1;
+    }
+
+    @Override
+    public boolean step() {
+        north = kernel.getThreshold(Forest.WindDirection.NORTH);
+        south = kernel.getThreshold(Forest.WindDirection.SOUTH);
+        west = kernel.getThreshold(Forest.WindDirection.WEST);
+        east = kernel.getThreshold(Forest.WindDirection.EAST);
+        cycleKey = random.cycleKey(simulationCycles);
+
+        // Read from the current cycle and write the next cycle, then swap the buffers
+        pool.invoke(new BandTask(0, bandCount));
+        byte[] swap = current;
+        current = next;
+        next = swap;
+
+        // The bands count their own changes, so the threads never share a counter
+        long ignitions = 0;
+        long scorches = 0;
+        for (int band = 0; band < bandCount; band++) {
+            ignitions += bandIgnitions[band];
+            scorches += bandScorches[band];
+        }
+        counts.move(PackedForest.UNTOUCHED, PackedForest.BURNING, ignitions);
+        counts.move(PackedForest.BURNING, PackedForest.SCORCHED, scorches);
+
+        simulationCycles++;
+        return isStillBurning();
+    }
+
+    @Override
+    public boolean isStillBurning() {
+        return counts.anyBurning();
+    }
+
+    @Override
+    public long getBurningCount() {
+        return counts.get(ForestCell.State.BURNING);
+    }
+
+    @Override
+    public long getStateCount(ForestCell.State state) {
+        return counts.get(state);
+    }
+
+    /**
+     * Computes the next cycle of the rows in the specified band and counts the cells of the band that change state.
+     *
+     * @param band the index of the band
+     */
+    private void stepBand(int band) {
+        long ignitions = 0;
+        long scorches = 0;
+        int lastRow = Math.min((band + 1) * BAND_ROWS, rows);
+        for (int i = band * BAND_ROWS; i < lastRow; i++) {
+            int rowStart = i * columns;
+            for (int j = 0; j < columns; j++) {
+                int index = rowStart + j;
+                int cell = current[index];
+                int state = cell & PackedForest.STATE_MASK;
+                if (state == PackedForest.UNTOUCHED) {
+                    // Each burning neighbour gets one attempt to spread the fire to this cell
+                    boolean catches = (i < rows - 1 && isBurning(index + columns) && ignites(index, Forest.WindDirection.NORTH, north))
+                            || (i > 0 && isBurning(index - columns) && ignites(index, Forest.WindDirection.SOUTH, south))
+                            || (j < columns - 1 && isBurning(index + 1) && ignites(index, Forest.WindDirection.WEST, west))
+                            || (j > 0 && isBurning(index - 1) && ignites(index, Forest.WindDirection.EAST, east));
+                    if (catches) {
+                        next[index] = PackedForest.BURNING;
+                        ignitions++;
+                    } else {
+                        next[index] = PackedForest.UNTOUCHED;
+                    }
+                } else if (state == PackedForest.BURNING) {
+                    // Increment the burn duration and set the cell to scorched once it has burned for 2 cycles
+                    if ((cell & PackedForest.BURN_DURATION_MASK) == 0) {
+                        next[index] = (byte) (PackedForest.BURNING | PackedForest.BURN_DURATION_UNIT);
+                    } else {
+                        next[index] = PackedForest.SCORCHED;
+                        scorches++;
+                    }
+                } else {
+                    next[index] = (byte) cell;
+                }
+            }
+        }
+        bandIgnitions[band] = ignitions;
+        bandScorches[band] = scorches;
+    }
+
+    /**
+     * Decides an attempt to set the specified cell on fire during the current cycle,
+     * scaling the cut-off by the fuel of the cell if there is a fuel map.
+     *
+     * @param index     the index of the cell catching fire
+     * @param direction the direction the fire spreads in to reach the cell
+     * @param threshold the cut-off of the adjusted probability of the fire spreading in that direction
+     * @return true if the cell catches fire
+     */
+    private boolean ignites(int index, Forest.WindDirection direction, long threshold) {
+        long bits = IgnitionRandom.nextLong(cycleKey, index, direction);
+        return fuelMap == null ? SpreadKernel.ignites(bits, threshold)
+                : SpreadKernel.ignites(bits, threshold, fuelMap.getFuel(index));
+    }
+
+    /**
+     * Checks if the specified cell is burning in the current cycle.
+     *
+     * @param index the index of the cell
+     * @return true if the cell is burning
+     */
+    private boolean isBurning(int index) {
+        return (current[index] & PackedForest.STATE_MASK) == PackedForest.BURNING;
+    }
+
+    /**
+     * A task that steps a range of bands, splitting the range in half until a single band is left.
+     */
+    @SuppressWarnings("serial")
+    private class BandTask extends RecursiveAction {
+
+        /**
+         * The first band of the range.
+         */
+        private final int firstBand;
+
+        /**
+         * The band after the last band of the range.
+         */
+        private final int endBand;
+
+        /**
+         * Constructs a task that steps the bands from firstBand up to, but not including, endBand.
+         *
+         * @param firstBand the first band of the range
+         * @param endBand   the band after the last band of the range
+         */
+        BandTask(int firstBand, int endBand) {
+            this.firstBand = firstBand;
+            this.endBand = endBand;
+        }
+
+        @Override
+        protected void compute() {
+            if (endBand - firstBand <= 1) {
+                if (firstBand < endBand) {
+                    stepBand(firstBand);
+                }
+                return;
+            }
+            int middle = (firstBand + endBand) >>> 1;
+            BandTask upper = new BandTask(firstBand, middle);
+            upper.fork();
+            new BandTask(middle, endBand).compute();
+            upper.join();
+        }
+    }
+}
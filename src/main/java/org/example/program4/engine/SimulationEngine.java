@@ -0,0 +1,132 @@
+package org.example.program4.engine;
+
+/**
+ * A forest fire simulation that can be stepped one simulation cycle at a time.
+ * Implementations have no JavaFX dependency, so they can be run headless on servers
+ * or driven by the GUI, which only acts as a view over the engine.
+ */
+public interface SimulationEngine {
+
+    /**
+     * Sets the probability of the fire spreading and the direction of the wind used by the following steps.
+     *
+     * @param probability   the initial probability of the fire spreading to an adjacent cell
+     * @param windDirection the direction of the wind
+     */
+    default void setSpreadParameters(double probability, Forest.WindDirection windDirection) {
+        setSpreadKernel(new SpreadKernel(probability, windDirection));
+    }
+
+    /**
+     * Sets the spread kernel used by the following steps.
+     *
+     * @param kernel the probabilities of the fire spreading in each direction
+     */
+    void setSpreadKernel(SpreadKernel kernel);
+
+    /**
+     * Sets the fuel of every cell used by the following steps, or null to give every cell full fuel.
+     *
+     * @param fuelMap the fuel of every cell, with the same number of rows and columns as the forest
+     * @throws IllegalArgumentException if the map has a different size than the forest
+     * @throws UnsupportedOperationException if the engine does not support fuel maps
+     */
+    default void setFuelMap(FuelMap fuelMap) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support fuel maps");
+    }
+
+    /**
+     * Sets the specified cell on fire. This defines the first simulation cycle.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     */
+    void startFire(int i, int j);
+
+    /**
+     * Runs one simulation cycle. Every cell that is burning attempts to spread the fire to its adjacent cells.
+     *
+     * @return true if the fire is still burning after the cycle, false if it has gone out
+     */
+    boolean step();
+
+    /**
+     * Runs simulation cycles until the fire has gone out.
+     *
+     * @return the number of simulation cycles it took for the fire to go out
+     */
+    default int runToCompletion() {
+        while (step()) {
+            // Keep stepping until there are no burning cells left
+        }
+        return getSimulationCycles();
+    }
+
+    /**
+     * Checks if any cell in the forest is still burning.
+     *
+     * @return true if at least one cell is burning, false otherwise
+     */
+    boolean isStillBurning();
+
+    /**
+     * Returns the state of the cell at the specified coordinates.
+     *
+     * @param i the x-coordinate of the cell
+     * @param j the y-coordinate of the cell
+     * @return the state of the cell
+     */
+    ForestCell.State getState(int i, int j);
+
+    /**
+     * Returns the cells whose state changed when the fire was started or during the last simulation cycle,
+     * so a view can repaint only those cells.
+     *
+     * @return the changed cells, or null if the engine does not keep track of them and the whole forest must be repainted
+     */
+    default CellChanges getChangedCells() {
+        return null;
+    }
+
+    /**
+     * Returns the number of cells that are currently burning, if the engine keeps count of them.
+     *
+     * @return the number of burning cells, or -1 if the engine does not keep count of them
+     */
+    default long getBurningCount() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of cells in the specified state, if the engine keeps count of them.
+     * Engines that keep count update the counts on every change of state, so the call does not scan the forest
+     * and can be made after every step, for example to plot the burned area as the fire spreads.
+     *
+     * @param state the state
+     * @return the number of cells in the state, or -1 if the engine does not keep count of them
+     */
+    default long getStateCount(ForestCell.State state) {
+        return -1;
+    }
+
+    /**
+     * Returns the number of rows of the grid that represents the forest, which is the range of the x-coordinate i.
+     *
+     * @return the number of rows
+     */
+    int getRows();
+
+    /**
+     * Returns the number of columns of the grid that represents the forest, which is the range of the y-coordinate j.
+     *
+     * @return the number of columns
+     */
+    int getColumns();
+
+    /**
+     * Returns the number of simulation cycles, counting the cycle the fire was started in.
+     *
+     * @return the number of simulation cycles
+     */
+    int getSimulationCycles();
+}
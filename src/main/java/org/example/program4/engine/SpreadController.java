@@ -0,0 +1,117 @@
+package org.example.program4.engine;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Changes the spread of a running simulation between steps, from a {@link SpreadSchedule} and from any thread,
+ * such as the GUI thread when the slider or the wind direction is changed.
+ * <p>
+ * A new spread kernel is worked out once, by the thread that changes the parameters, and handed to the simulation
+ * thread through an atomic reference. Before each step the simulation thread makes one check for a new kernel and
+ * one for a scheduled change, and only then sets the kernel of the engine, so a step always uses a single kernel
+ * and the cells are never checked for new parameters.
+ */
+public final class SpreadController {
+
+    /**
+     * The kernel set by another thread that has not been set on the engine yet, or null if there is none.
+     */
+    private final AtomicReference<SpreadKernel> published = new AtomicReference<>();
+
+    /**
+     * The scheduled changes that have not been made yet.
+     */
+    private final Iterator<Map.Entry<Integer, SpreadSchedule.Change>> scheduled;
+
+    /**
+     * The next scheduled change, or null if there are no more.
+     */
+    private Map.Entry<Integer, SpreadSchedule.Change> nextChange;
+
+    /**
+     * The kernel the engine is using.
+     */
+    private volatile SpreadKernel kernel;
+
+    /**
+     * The number of scheduled changes that have been made, only written by the simulation thread.
+     */
+    private volatile int scheduledChangesMade;
+
+    /**
+     * Constructs a controller for an engine that uses the specified kernel and has run the specified number of cycles.
+     * The changes up to that cycle are taken as made already, so the kernel of a simulation restored from a checkpoint
+     * is kept until its next scheduled change.
+     *
+     * @param kernel   the kernel the engine is using
+     * @param schedule the changes planned for later cycles
+     * @param cycle    the number of simulation cycles the engine has run, or 0 if the fire has not been started yet
+     */
+    public SpreadController(SpreadKernel kernel, SpreadSchedule schedule, int cycle) {
+        this.kernel = kernel;
+        this.scheduled = schedule.getChanges().tailMap(cycle, false).entrySet().iterator();
+        this.nextChange = scheduled.hasNext() ? scheduled.next() : null;
+    }
+
+    /**
+     * Hands new spread parameters to the simulation, which uses them from its next step.
+     * Can be called from any thread. Of several calls between two steps, the last one wins.
+     *
+     * @param probability   the initial probability of the fire spreading to an adjacent cell
+     * @param windDirection the direction of the wind
+     */
+    public void publish(double probability, Forest.WindDirection windDirection) {
+        published.set(new SpreadKernel(probability, windDirection));
+    }
+
+    /**
+     * Sets the newest kernel on the engine, first the one handed over by {@link #publish} and then any scheduled
+     * changes that are due for the cycle the engine is about to run. Must be called by the thread that steps the
+     * engine, right before each step.
+     *
+     * @param engine the engine that is about to be stepped
+     */
+    public void beforeStep(SimulationEngine engine) {
+        SpreadKernel next = published.getAndSet(null);
+        if (next == null) {
+            next = kernel;
+        }
+        // The step runs the cycle after the cycles the engine has run so far
+        int cycle = engine.getSimulationCycles() + 1;
+        int changesMade = 0;
+        while (nextChange != null && nextChange.getKey() <= cycle) {
+            next = nextChange.getValue().applyTo(next);
+            nextChange = scheduled.hasNext() ? scheduled.next() : null;
+            changesMade++;
+        }
+        if (next != kernel) {
+            engine.setSpreadKernel(next);
+            kernel = next;
+        }
+        if (changesMade > 0) {
+            // Counted after the kernel is set, so a thread that sees the new count also sees the new kernel
+            scheduledChangesMade += changesMade;
+        }
+    }
+
+    /**
+     * Returns the number of scheduled changes that have been made, so a view can tell changes made by the schedule
+     * from its own. Can be called from any thread.
+     *
+     * @return the number of scheduled changes made
+     */
+    public int getScheduledChangesMade() {
+        return scheduledChangesMade;
+    }
+
+    /**
+     * Returns the kernel the engine is using. Can be called from any thread.
+     *
+     * @return the spread kernel
+     */
+    public SpreadKernel getSpreadKernel() {
+        return kernel;
+    }
+}
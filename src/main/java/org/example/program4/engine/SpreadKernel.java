@@ -0,0 +1,123 @@
+package org.example.program4.engine;
+
+/**
+ * The probabilities of the fire spreading in each direction, worked out once from the initial probability
+ * and the wind direction instead of once per neighbour.
+ * <p>
+ * Each probability is also stored as a whole number cut-off for the top 53 bits of the random bits from
+ * {@link IgnitionRandom}. Comparing the bits against the cut-off gives exactly the same answer as converting them
+ * to a double and comparing against the probability, so deciding whether a neighbour catches fire is a shift and a compare.
+ */
+public final class SpreadKernel {
+
+    /**
+     * The initial probability of the fire spreading to an adjacent cell.
+     */
+    private final double probability;
+
+    /**
+     * The direction of the wind.
+     */
+    private final Forest.WindDirection windDirection;
+
+    /**
+     * The adjusted probability of the fire spreading in each direction, indexed by the ordinal of the direction.
+     */
+    private final double[] probabilities = new double[4];
+
+    /**
+     * The cut-off for the top 53 random bits in each direction, indexed by the ordinal of the direction.
+     */
+    private final long[] thresholds = new long[4];
+
+    /**
+     * Constructs the spread kernel for the specified initial probability and wind direction.
+     *
+     * @param probability   the initial probability of the fire spreading to an adjacent cell
+     * @param windDirection the direction of the wind
+     */
+    public SpreadKernel(double probability, Forest.WindDirection windDirection) {
+        this.probability = probability;
+        this.windDirection = windDirection;
+        for (Forest.WindDirection direction : Forest.WindDirection.values()) {
+            double adjustedProbability = Forest.adjustProbability(probability, windDirection, direction);
+            probabilities[direction.ordinal()] = adjustedProbability;
+            thresholds[direction.ordinal()] = toThreshold(adjustedProbability);
+        }
+    }
+
+    /**
+     * Converts a probability to the cut-off for the top 53 random bits.
+     * A random double is (bits >>> 11) * 2^-53, and it is below the probability exactly when
+     * (bits >>> 11) is below the probability * 2^53 rounded up.
+     *
+     * @param probability the probability between 0.0 and 1.0
+     * @return the cut-off
+     */
+    static long toThreshold(double probability) {
+        return (long) Math.ceil(probability * 0x1.0p53);
+    }
+
+    /**
+     * Returns the initial probability of the fire spreading to an adjacent cell.
+     *
+     * @return the initial probability
+     */
+    public double getProbability() {
+        return probability;
+    }
+
+    /**
+     * Returns the direction of the wind.
+     *
+     * @return the direction of the wind
+     */
+    public Forest.WindDirection getWindDirection() {
+        return windDirection;
+    }
+
+    /**
+     * Returns the probability of the fire spreading in the specified direction, adjusted for the wind.
+     *
+     * @param direction the direction the fire spreads in
+     * @return the adjusted probability
+     */
+    public double getProbability(Forest.WindDirection direction) {
+        return probabilities[direction.ordinal()];
+    }
+
+    /**
+     * Returns the cut-off for the top 53 random bits in the specified direction.
+     *
+     * @param direction the direction the fire spreads in
+     * @return the cut-off
+     */
+    public long getThreshold(Forest.WindDirection direction) {
+        return thresholds[direction.ordinal()];
+    }
+
+    /**
+     * Checks if an attempt to spread the fire catches, given the random bits drawn for it.
+     *
+     * @param bits      the random bits from {@link IgnitionRandom}
+     * @param threshold the cut-off of the direction the fire spreads in
+     * @return true if the cell catches fire
+     */
+    public static boolean ignites(long bits, long threshold) {
+        return (bits >>> 11) < threshold;
+    }
+
+    /**
+     * Checks if an attempt to spread the fire to a cell with the specified fuel catches, given the random bits drawn for it.
+     * The cut-off is scaled by the fuel without a division: the top 53 bits are below threshold * fuel / 255
+     * exactly when they times 255 are below threshold * fuel, and neither product overflows.
+     *
+     * @param bits      the random bits from {@link IgnitionRandom}
+     * @param threshold the cut-off of the direction the fire spreads in
+     * @param fuel      the fuel of the cell from the {@link FuelMap}, from 0 to {@value FuelMap#FULL_FUEL}
+     * @return true if the cell catches fire
+     */
+    public static boolean ignites(long bits, long threshold, int fuel) {
+        return (bits >>> 11) * FuelMap.FULL_FUEL < threshold * fuel;
+    }
+}
@@ -0,0 +1,180 @@
+package org.example.program4.engine;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Changes of the fire probability and the wind direction planned for given simulation cycles,
+ * such as the wind shifting to the east at cycle 40. A schedule is applied to a running simulation by a
+ * {@link SpreadController}.
+ * <p>
+ * A schedule can be written as a script of changes separated by semicolons, each a cycle followed by the
+ * settings that change at that cycle:
+ * <pre>
+ * 40 wind=EAST; 60 probability=0.5; 80 probability=0.4 wind=SOUTH
+ * </pre>
+ * A change at cycle N is in effect from the step that runs cycle N, the cycle the fire is started in being cycle 1.
+ * Schedules are immutable.
+ */
+public final class SpreadSchedule {
+
+    /**
+     * The schedule without any changes.
+     */
+    public static final SpreadSchedule NONE = new SpreadSchedule(new TreeMap<>());
+
+    /**
+     * The changes by the cycle they are made in.
+     */
+    private final NavigableMap<Integer, Change> changes;
+
+    /**
+     * Constructs a schedule from its changes.
+     *
+     * @param changes the changes by the cycle they are made in, which are not copied
+     */
+    private SpreadSchedule(NavigableMap<Integer, Change> changes) {
+        this.changes = Collections.unmodifiableNavigableMap(changes);
+    }
+
+    /**
+     * The settings that change at a simulation cycle.
+     *
+     * @param probability   the new initial probability of the fire spreading, or NaN if it does not change
+     * @param windDirection the new direction of the wind, or null if it does not change
+     */
+    public record Change(double probability, Forest.WindDirection windDirection) {
+
+        /**
+         * Works out the spread kernel after the change.
+         *
+         * @param kernel the spread kernel before the change
+         * @return the spread kernel after the change
+         */
+        public SpreadKernel applyTo(SpreadKernel kernel) {
+            return new SpreadKernel(Double.isNaN(probability) ? kernel.getProbability() : probability,
+                    windDirection == null ? kernel.getWindDirection() : windDirection);
+        }
+
+        /**
+         * Combines this change with a later change at the same cycle, the later change winning where both change a setting.
+         *
+         * @param later the later change
+         * @return the combined change
+         */
+        private Change then(Change later) {
+            return new Change(Double.isNaN(later.probability) ? probability : later.probability,
+                    later.windDirection == null ? windDirection : later.windDirection);
+        }
+    }
+
+    /**
+     * Reads a schedule from a script such as {@code "40 wind=EAST; 60 probability=0.5"}.
+     *
+     * @param script the changes separated by semicolons, each a cycle followed by {@code probability=} and/or {@code wind=}
+     * @return the schedule
+     * @throws IllegalArgumentException if the script cannot be read
+     */
+    public static SpreadSchedule parse(String script) {
+        SpreadSchedule schedule = NONE;
+        for (String entry : script.split(";")) {
+            String[] words = entry.trim().split("\\s+");
+            if (words.length == 1 && words[0].isEmpty()) {
+                continue;
+            }
+            if (words.length < 2) {
+                throw new IllegalArgumentException("A change is a cycle followed by probability= and/or wind=: " + entry.trim());
+            }
+            int cycle = Integer.parseInt(words[0]);
+            for (int w = 1; w < words.length; w++) {
+                String word = words[w];
+                if (word.startsWith("probability=")) {
+                    schedule = schedule.withProbability(cycle, Double.parseDouble(word.substring("probability=".length())));
+                } else if (word.startsWith("wind=")) {
+                    schedule = schedule.withWindDirection(cycle,
+                            Forest.WindDirection.valueOf(word.substring("wind=".length()).toUpperCase()));
+                } else {
+                    throw new IllegalArgumentException("Unknown setting at cycle " + cycle + ": " + word);
+                }
+            }
+        }
+        return schedule;
+    }
+
+    /**
+     * Returns a copy of this schedule where the fire probability changes at the specified cycle.
+     *
+     * @param cycle       the simulation cycle the probability changes in
+     * @param probability the new initial probability of the fire spreading
+     * @return the schedule with the change
+     * @throws IllegalArgumentException if the probability is not between 0 and 1
+     */
+    public SpreadSchedule withProbability(int cycle, double probability) {
+        if (!(probability >= 0 && probability <= 1)) {
+            throw new IllegalArgumentException("The probability must be between 0 and 1: " + probability);
+        }
+        return with(cycle, new Change(probability, null));
+    }
+
+    /**
+     * Returns a copy of this schedule where the wind direction changes at the specified cycle.
+     *
+     * @param cycle         the simulation cycle the wind changes in
+     * @param windDirection the new direction of the wind
+     * @return the schedule with the change
+     */
+    public SpreadSchedule withWindDirection(int cycle, Forest.WindDirection windDirection) {
+        return with(cycle, new Change(Double.NaN, windDirection));
+    }
+
+    /**
+     * Returns a copy of this schedule with a change added at the specified cycle.
+     *
+     * @param cycle  the simulation cycle of the change
+     * @param change the change
+     * @return the schedule with the change
+     */
+    private SpreadSchedule with(int cycle, Change change) {
+        NavigableMap<Integer, Change> copy = new TreeMap<>(changes);
+        copy.merge(cycle, change, Change::then);
+        return new SpreadSchedule(copy);
+    }
+
+    /**
+     * Returns the changes by the cycle they are made in, from the earliest to the latest.
+     *
+     * @return the changes
+     */
+    public NavigableMap<Integer, Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Checks if the schedule has no changes.
+     *
+     * @return true if nothing changes
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder script = new StringBuilder();
+        for (Map.Entry<Integer, Change> entry : changes.entrySet()) {
+            if (!script.isEmpty()) {
+                script.append("; ");
+            }
+            script.append(entry.getKey());
+            if (!Double.isNaN(entry.getValue().probability())) {
+                script.append(" probability=").append(entry.getValue().probability());
+            }
+            if (entry.getValue().windDirection() != null) {
+                script.append(" wind=").append(entry.getValue().windDirection());
+            }
+        }
+        return script.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.program4.engine;
+
+import java.util.Arrays;
+
+/**
+ * Running counts of the cells in each state, updated by an engine on every change of state of a cell.
+ * This makes the number of untouched, burning and scorched cells, and whether the fire is still burning,
+ * known at any time without scanning the forest.
+ */
+final class StateCounts {
+
+    /**
+     * The number of cells in each state, indexed by the ordinal of the state, which are also the state bits of {@link PackedForest}.
+     */
+    private final long[] counts = new long[PackedForest.STATES.length];
+
+    /**
+     * Constructs the counts of a forest where every cell is untouched.
+     *
+     * @param cells the number of cells of the forest
+     */
+    StateCounts(long cells) {
+        counts[PackedForest.UNTOUCHED] = cells;
+    }
+
+    /**
+     * Counts a cell that changed from one state to another.
+     *
+     * @param from the state bits of the cell before the change
+     * @param to   the state bits of the cell after the change
+     */
+    void move(int from, int to) {
+        counts[from]--;
+        counts[to]++;
+    }
+
+    /**
+     * Counts a number of cells that changed from one state to another.
+     *
+     * @param from  the state bits of the cells before the change
+     * @param to    the state bits of the cells after the change
+     * @param cells the number of cells that changed
+     */
+    void move(int from, int to, long cells) {
+        counts[from] -= cells;
+        counts[to] += cells;
+    }
+
+    /**
+     * Returns the number of cells in the specified state.
+     *
+     * @param state the state
+     * @return the number of cells in the state
+     */
+    long get(ForestCell.State state) {
+        return counts[state.ordinal()];
+    }
+
+    /**
+     * Checks if any cell is burning.
+     *
+     * @return true if at least one cell is burning
+     */
+    boolean anyBurning() {
+        return counts[PackedForest.BURNING] > 0;
+    }
+
+    /**
+     * Counts every cell of the engine again, for engines whose cells were set without going through the counts,
+     * such as a forest restored from a checkpoint.
+     *
+     * @param engine the engine whose cells are counted
+     */
+    void recount(SimulationEngine engine) {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < engine.getRows(); i++) {
+            for (int j = 0; j < engine.getColumns(); j++) {
+                counts[engine.getState(i, j).ordinal()]++;
+            }
+        }
+    }
+}
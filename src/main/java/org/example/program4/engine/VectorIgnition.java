@@ -0,0 +1,86 @@
+package org.example.program4.engine;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Decides a 64-cell word of candidates a vector at a time with the incubating Vector API: 4 cells per vector with
+ * AVX2 and 8 with AVX-512. Each lane computes the random number of its cell with the same mixing function as
+ * {@link IgnitionRandom#nextLong} and compares it with the threshold, so the cells that catch fire are exactly
+ * the ones decided one at a time. Only used through {@link CandidateIgnition}, which checks that the module is loaded.
+ */
+final class VectorIgnition {
+
+    /**
+     * The widest vector of longs the CPU supports.
+     */
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * The offset of each lane from the first cell of the vector: 0, 1, 2, ...
+     */
+    private static final LongVector LANE_OFFSETS = LongVector.zero(SPECIES).addIndex(1);
+
+    /**
+     * The bits of one vector of cells within a word.
+     */
+    private static final long LANE_BITS = SPECIES.length() == Long.SIZE ? -1L : (1L << SPECIES.length()) - 1;
+
+    /**
+     * The smallest number of candidates in a word for which deciding the whole word with vectors pays off.
+     * A word takes 64 / lanes vectors however few candidates it has, and one candidate costs about as much as
+     * two vectors, so it pays off from 16 candidates with AVX-512 and from 32 with AVX2.
+     */
+    static final int MIN_CANDIDATES = 2 * Long.SIZE / SPECIES.length();
+
+    /**
+     * Not instantiable.
+     */
+    private VectorIgnition() {
+    }
+
+    /**
+     * Checks if the vectors are wide enough to be faster than deciding one cell at a time.
+     *
+     * @return true if a vector holds at least 4 longs
+     */
+    static boolean isUseful() {
+        return SPECIES.length() >= 4;
+    }
+
+    /**
+     * Decides which of the candidate cells of a word catch fire.
+     *
+     * @param candidates the bits of the cells that can catch fire from the specified direction
+     * @param cycleKey   the key of the current simulation cycle in the random number source
+     * @param firstCell  the index of the cell of bit 0 in row-major order
+     * @param direction  the direction the fire spreads in to reach the cells
+     * @param threshold  the cut-off of the adjusted probability of the fire spreading in that direction
+     * @return the bits of the cells that catch fire
+     */
+    static long ignite(long candidates, long cycleKey, long firstCell, Forest.WindDirection direction, long threshold) {
+        long caught = 0;
+        for (int bit = 0; bit < Long.SIZE; bit += SPECIES.length()) {
+            long lanes = (candidates >>> bit) & LANE_BITS;
+            // Skip vectors without candidates
+            if (lanes == 0) {
+                continue;
+            }
+            // The same steps as IgnitionRandom.nextLong, one cell per lane
+            LongVector z = LANE_OFFSETS.add(firstCell + bit)
+                    .lanewise(VectorOperators.LSHL, 2)
+                    .or(direction.ordinal())
+                    .mul(IgnitionRandom.GOLDEN_GAMMA)
+                    .add(cycleKey);
+            z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 30)).mul(IgnitionRandom.MIX_MULTIPLIER_1);
+            z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 27)).mul(IgnitionRandom.MIX_MULTIPLIER_2);
+            z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 31));
+            // The same comparison as SpreadKernel.ignites
+            VectorMask<Long> ignites = z.lanewise(VectorOperators.LSHR, 11).compare(VectorOperators.LT, threshold);
+            caught |= (ignites.toLong() & lanes) << bit;
+        }
+        return caught;
+    }
+}
@@ -0,0 +1,182 @@
+package org.example.program4.metrics;
+
+import org.example.program4.engine.CellChanges;
+import org.example.program4.engine.ForestCell;
+import org.example.program4.engine.FuelMap;
+import org.example.program4.engine.SimulationEngine;
+import org.example.program4.engine.SpreadKernel;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Wraps a simulation engine to measure every simulation cycle: how long the step took, how many cells caught fire
+ * and were scorched, how many cells are burning, and how much memory the step allocated.
+ * <p>
+ * The measurements are passed to a {@link StepListener} and committed as a {@link StepEvent} to the JDK Flight
+ * Recorder. When there is no listener and no recording has enabled the event, a step only costs one check more
+ * than stepping the engine directly, so batch runs can always be wrapped.
+ * <p>
+ * The number of cells that caught fire and were scorched are only known for engines that keep track of their
+ * changed cells, and the number of burning cells only for engines that keep count of them.
+ */
+public class InstrumentedEngine implements SimulationEngine {
+
+    /**
+     * The source of the number of bytes allocated by a thread, or null if the JVM does not measure it.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = findThreadMXBean();
+
+    /**
+     * The engine that is measured.
+     */
+    private final SimulationEngine engine;
+
+    /**
+     * The listener that receives the measurements, or null if they only go to the flight recorder.
+     */
+    private final StepListener listener;
+
+    /**
+     * Constructs a wrapper that measures the specified engine.
+     *
+     * @param engine   the engine that is measured
+     * @param listener the listener that receives the measurements, or null if they only go to the flight recorder
+     */
+    public InstrumentedEngine(SimulationEngine engine, StepListener listener) {
+        this.engine = engine;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the engine that is measured.
+     *
+     * @return the wrapped engine
+     */
+    public SimulationEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    public boolean step() {
+        StepEvent event = new StepEvent();
+        // Without anyone to receive the measurements, do not take them
+        if (listener == null && !event.isEnabled()) {
+            return engine.step();
+        }
+        long allocatedBefore = getAllocatedBytes();
+        event.begin();
+        long start = System.nanoTime();
+        boolean stillBurning = engine.step();
+        long durationNanos = System.nanoTime() - start;
+        event.end();
+        long allocatedBytes = allocatedBefore < 0 ? -1 : getAllocatedBytes() - allocatedBefore;
+
+        // Sort the changed cells into the cells that caught fire and the cells that were scorched
+        int cellsIgnited = -1;
+        int cellsScorched = -1;
+        CellChanges changes = engine.getChangedCells();
+        if (changes != null) {
+            cellsIgnited = 0;
+            int columns = engine.getColumns();
+            for (int k = 0; k < changes.size(); k++) {
+                int index = changes.getIndex(k);
+                if (engine.getState(index / columns, index % columns) == ForestCell.State.BURNING) {
+                    cellsIgnited++;
+                }
+            }
+            cellsScorched = changes.size() - cellsIgnited;
+        }
+        long frontierSize = engine.getBurningCount();
+
+        if (event.shouldCommit()) {
+            event.cycle = engine.getSimulationCycles();
+            event.cellsIgnited = cellsIgnited;
+            event.cellsScorched = cellsScorched;
+            event.frontierSize = frontierSize;
+            event.allocatedBytes = allocatedBytes;
+            event.commit();
+        }
+        if (listener != null) {
+            listener.stepCompleted(new StepMetrics(engine.getSimulationCycles(), durationNanos, cellsIgnited, cellsScorched,
+                    frontierSize, allocatedBytes));
+        }
+        return stillBurning;
+    }
+
+    @Override
+    public void setSpreadKernel(SpreadKernel kernel) {
+        engine.setSpreadKernel(kernel);
+    }
+
+    @Override
+    public void setFuelMap(FuelMap fuelMap) {
+        engine.setFuelMap(fuelMap);
+    }
+
+    @Override
+    public void startFire(int i, int j) {
+        engine.startFire(i, j);
+    }
+
+    @Override
+    public boolean isStillBurning() {
+        return engine.isStillBurning();
+    }
+
+    @Override
+    public ForestCell.State getState(int i, int j) {
+        return engine.getState(i, j);
+    }
+
+    @Override
+    public CellChanges getChangedCells() {
+        return engine.getChangedCells();
+    }
+
+    @Override
+    public long getBurningCount() {
+        return engine.getBurningCount();
+    }
+
+    @Override
+    public long getStateCount(ForestCell.State state) {
+        return engine.getStateCount(state);
+    }
+
+    @Override
+    public int getRows() {
+        return engine.getRows();
+    }
+
+    @Override
+    public int getColumns() {
+        return engine.getColumns();
+    }
+
+    @Override
+    public int getSimulationCycles() {
+        return engine.getSimulationCycles();
+    }
+
+    /**
+     * Returns the number of bytes the current thread has allocated since it started.
+     *
+     * @return the number of bytes, or -1 if the JVM does not measure it
+     */
+    private static long getAllocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /**
+     * Finds the thread bean of the JVM, if it can measure the memory allocated by a thread.
+     *
+     * @return the thread bean, or null if the JVM does not measure the memory allocated by a thread
+     */
+    private static com.sun.management.ThreadMXBean findThreadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.program4.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for one simulation cycle, committed by {@link InstrumentedEngine}.
+ * The duration of the event is the time the step took. The event is disabled unless a recording enables it,
+ * for example with {@code -XX:StartFlightRecording} and a settings file that enables
+ * {@code org.example.program4.SimulationStep}.
+ */
+@Name("org.example.program4.SimulationStep")
+@Label("Simulation Step")
+@Description("One simulation cycle of a forest fire engine")
+@Category({"Forest Fire Simulator"})
+@StackTrace(false)
+class StepEvent extends Event {
+
+    /**
+     * The number of simulation cycles after the step.
+     */
+    @Label("Cycle")
+    int cycle;
+
+    /**
+     * The number of cells that caught fire during the step, or -1 if unknown.
+     */
+    @Label("Cells Ignited")
+    int cellsIgnited;
+
+    /**
+     * The number of cells that were scorched during the step, or -1 if unknown.
+     */
+    @Label("Cells Scorched")
+    int cellsScorched;
+
+    /**
+     * The number of cells that are burning after the step, or -1 if unknown.
+     */
+    @Label("Frontier Size")
+    long frontierSize;
+
+    /**
+     * The number of bytes the stepping thread allocated during the step, or -1 if unknown.
+     */
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,16 @@
+package org.example.program4.metrics;
+
+/**
+ * Receives the measurements of every simulation cycle of an {@link InstrumentedEngine}.
+ * A listener that is shared by engines that run in parallel must be thread safe.
+ */
+@FunctionalInterface
+public interface StepListener {
+
+    /**
+     * Called after each simulation cycle, on the thread that stepped the engine.
+     *
+     * @param metrics the measurements of the cycle
+     */
+    void stepCompleted(StepMetrics metrics);
+}
@@ -0,0 +1,15 @@
+package org.example.program4.metrics;
+
+/**
+ * The measurements of one simulation cycle. Counts the engine cannot provide are -1.
+ *
+ * @param cycle          the number of simulation cycles after the step
+ * @param durationNanos  the time the step took in nanoseconds
+ * @param cellsIgnited   the number of cells that caught fire during the step, or -1 if unknown
+ * @param cellsScorched  the number of cells that were scorched during the step, or -1 if unknown
+ * @param frontierSize   the number of cells that are burning after the step, or -1 if unknown
+ * @param allocatedBytes the number of bytes the stepping thread allocated during the step, or -1 if unknown
+ */
+public record StepMetrics(int cycle, long durationNanos, int cellsIgnited, int cellsScorched, long frontierSize,
+                          long allocatedBytes) {
+}
@@ -0,0 +1,181 @@
+package org.example.program4.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A step listener that sums up the measurements of every simulation cycle it receives, including a histogram of
+ * how long the steps took. The histogram has one bucket per power of two nanoseconds, so it takes the same small
+ * amount of memory however many steps are measured, and percentiles are accurate to within a factor of two.
+ * All methods are thread safe, so one listener can measure many engines that run in parallel.
+ */
+public class StepStatistics implements StepListener {
+
+    /**
+     * The number of steps whose duration has each bit length. Bucket b holds the steps that took
+     * from 2<sup>b-1</sup> up to 2<sup>b</sup> - 1 nanoseconds, and bucket 0 the steps that took no measurable time.
+     */
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(Long.SIZE);
+
+    /**
+     * The number of steps measured.
+     */
+    private final LongAdder steps = new LongAdder();
+
+    /**
+     * The total time the steps took in nanoseconds.
+     */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * The longest time a step took in nanoseconds.
+     */
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * The total number of cells that caught fire, over the steps where it is known.
+     */
+    private final LongAdder cellsIgnited = new LongAdder();
+
+    /**
+     * The total number of cells that were scorched, over the steps where it is known.
+     */
+    private final LongAdder cellsScorched = new LongAdder();
+
+    /**
+     * The largest number of cells burning after a step, over the steps where it is known.
+     */
+    private final LongAccumulator maxFrontierSize = new LongAccumulator(Math::max, 0);
+
+    /**
+     * The total number of bytes allocated by the steps, over the steps where it is known.
+     */
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    @Override
+    public void stepCompleted(StepMetrics metrics) {
+        long nanos = Math.max(0, metrics.durationNanos());
+        latencyBuckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(nanos));
+        steps.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        // Counts the engine cannot provide are -1 and left out
+        if (metrics.cellsIgnited() >= 0) {
+            cellsIgnited.add(metrics.cellsIgnited());
+        }
+        if (metrics.cellsScorched() >= 0) {
+            cellsScorched.add(metrics.cellsScorched());
+        }
+        if (metrics.frontierSize() >= 0) {
+            maxFrontierSize.accumulate(metrics.frontierSize());
+        }
+        if (metrics.allocatedBytes() >= 0) {
+            allocatedBytes.add(metrics.allocatedBytes());
+        }
+    }
+
+    /**
+     * Returns the number of steps measured.
+     *
+     * @return the number of steps
+     */
+    public long getStepCount() {
+        return steps.sum();
+    }
+
+    /**
+     * Returns the total time the steps took.
+     *
+     * @return the total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Returns the mean time a step took.
+     *
+     * @return the mean time in nanoseconds, or 0 if no steps were measured
+     */
+    public double getMeanNanos() {
+        long count = steps.sum();
+        return count == 0 ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns the longest time a step took.
+     *
+     * @return the longest time in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the time within which the specified fraction of the steps finished, rounded up to the next power of two.
+     *
+     * @param fraction the fraction of the steps, between 0 and 1, such as 0.99 for the 99th percentile
+     * @return the time in nanoseconds, or 0 if no steps were measured
+     */
+    public long getLatencyPercentile(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("The fraction must be between 0 and 1: " + fraction);
+        }
+        long count = steps.sum();
+        long target = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int b = 0; b < Long.SIZE; b++) {
+            seen += latencyBuckets.get(b);
+            if (seen >= target) {
+                // The upper end of the bucket, but never more than the slowest step
+                long upper = b == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+                return Math.min(upper, maxNanos.get());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the total number of cells that caught fire, over the steps where the engine reported it.
+     *
+     * @return the number of cells
+     */
+    public long getCellsIgnited() {
+        return cellsIgnited.sum();
+    }
+
+    /**
+     * Returns the total number of cells that were scorched, over the steps where the engine reported it.
+     *
+     * @return the number of cells
+     */
+    public long getCellsScorched() {
+        return cellsScorched.sum();
+    }
+
+    /**
+     * Returns the largest number of cells burning after a step, over the steps where the engine reported it.
+     *
+     * @return the number of cells
+     */
+    public long getMaxFrontierSize() {
+        return maxFrontierSize.get();
+    }
+
+    /**
+     * Returns the total number of bytes allocated by the steps, over the steps where the JVM measured it.
+     *
+     * @return the number of bytes
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d steps, mean %.0f ns, p50 %d ns, p99 %d ns, max %d ns, %d ignited, %d scorched, max frontier %d, %d bytes allocated",
+                getStepCount(), getMeanNanos(), getLatencyPercentile(0.5), getLatencyPercentile(0.99), getMaxNanos(),
+                getCellsIgnited(), getCellsScorched(), getMaxFrontierSize(), getAllocatedBytes());
+    }
+}
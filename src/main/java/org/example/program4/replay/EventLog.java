@@ -0,0 +1,342 @@
+package org.example.program4.replay;
+
+import org.example.program4.engine.CellChanges;
+import org.example.program4.engine.ForestCell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A recorded run of a simulation, read from the binary event log written by {@link EventLogWriter}.
+ * <p>
+ * The log starts with the bytes {@code FFEL}, a version byte, and the number of rows, the number of columns and the
+ * keyframe interval as variable-length integers. It is followed by records that each start with a tag byte:
+ * <ul>
+ *     <li>a keyframe holds the cycle it was taken at, followed by runs of cells with the same state in row-major
+ *     order, each run being the length of the run shifted left by 2 bits with the state in the lowest 2 bits;</li>
+ *     <li>a tick holds the cells that caught fire and then the cells that were scorched during one cycle, each list
+ *     being its length followed by the gaps between the sorted cell indices;</li>
+ *     <li>the end holds the last recorded cycle.</li>
+ * </ul>
+ * All numbers after the version byte are variable-length integers. The log is scanned once when it is read, to find
+ * where each keyframe and each tick starts, so a replay can jump to any cycle. A log whose recording was cut off
+ * is read up to its last complete record.
+ */
+public class EventLog {
+
+    /**
+     * The first 4 bytes of every log, "FFEL".
+     */
+    static final int MAGIC = 0x4646454C;
+
+    /**
+     * The version of the log format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The tag of the record that ends the log.
+     */
+    static final int TAG_END = 0;
+
+    /**
+     * The tag of a keyframe record.
+     */
+    static final int TAG_KEYFRAME = 1;
+
+    /**
+     * The tag of a tick record.
+     */
+    static final int TAG_TICK = 2;
+
+    /**
+     * The bytes of the log.
+     */
+    private final ByteBuffer bytes;
+
+    /**
+     * The number of rows of the recorded forest.
+     */
+    private final int rows;
+
+    /**
+     * The number of columns of the recorded forest.
+     */
+    private final int columns;
+
+    /**
+     * The number of simulation cycles between two keyframes.
+     */
+    private final int keyframeInterval;
+
+    /**
+     * The cycle of each keyframe, in increasing order.
+     */
+    private int[] keyframeCycles = new int[16];
+
+    /**
+     * The position of the cell runs of each keyframe in the log.
+     */
+    private int[] keyframePositions = new int[16];
+
+    /**
+     * The number of keyframes.
+     */
+    private int keyframeCount;
+
+    /**
+     * The position of each tick in the log. The tick at index k runs the cycle after {@link #getFirstCycle()} + k.
+     */
+    private int[] tickPositions = new int[64];
+
+    /**
+     * The last recorded simulation cycle.
+     */
+    private int lastCycle;
+
+    /**
+     * Constructs an event log from its bytes.
+     *
+     * @param bytes the bytes of the log
+     * @throws IllegalArgumentException if the bytes are not an event log
+     */
+    private EventLog(byte[] bytes) {
+        this.bytes = ByteBuffer.wrap(bytes);
+        if (bytes.length < 5 || this.bytes.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a forest fire event log");
+        }
+        int version = this.bytes.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported event log version: " + version);
+        }
+        this.rows = (int) VarInt.read(this.bytes);
+        this.columns = (int) VarInt.read(this.bytes);
+        this.keyframeInterval = (int) VarInt.read(this.bytes);
+        scan();
+        if (keyframeCount == 0) {
+            throw new IllegalArgumentException("The event log does not hold a single keyframe");
+        }
+    }
+
+    /**
+     * Reads an event log from a file.
+     *
+     * @param file the file the log was written to
+     * @return the event log
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not an event log
+     */
+    public static EventLog read(Path file) throws IOException {
+        return new EventLog(Files.readAllBytes(file));
+    }
+
+    /**
+     * Reads an event log from a stream, up to the end of the stream.
+     *
+     * @param in the stream the log was written to
+     * @return the event log
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalArgumentException if the stream does not hold an event log
+     */
+    public static EventLog read(InputStream in) throws IOException {
+        return new EventLog(in.readAllBytes());
+    }
+
+    /**
+     * Finds the position of every keyframe and every tick in the log.
+     */
+    private void scan() {
+        int cycle = 0;
+        int tickCount = 0;
+        try {
+            while (bytes.hasRemaining()) {
+                int start = bytes.position();
+                int tag = bytes.get();
+                if (tag == TAG_END) {
+                    lastCycle = (int) VarInt.read(bytes);
+                    return;
+                } else if (tag == TAG_KEYFRAME) {
+                    int keyframeCycle = (int) VarInt.read(bytes);
+                    int position = bytes.position();
+                    skipKeyframe();
+                    if (keyframeCount == keyframeCycles.length) {
+                        keyframeCycles = Arrays.copyOf(keyframeCycles, keyframeCount * 2);
+                        keyframePositions = Arrays.copyOf(keyframePositions, keyframeCount * 2);
+                    }
+                    keyframeCycles[keyframeCount] = keyframeCycle;
+                    keyframePositions[keyframeCount] = position;
+                    keyframeCount++;
+                    cycle = keyframeCycle;
+                } else if (tag == TAG_TICK) {
+                    if (keyframeCount == 0) {
+                        throw new IllegalArgumentException("The event log does not start with a keyframe");
+                    }
+                    skipIndices();
+                    skipIndices();
+                    if (tickCount == tickPositions.length) {
+                        tickPositions = Arrays.copyOf(tickPositions, tickCount * 2);
+                    }
+                    tickPositions[tickCount++] = start;
+                    cycle++;
+                } else {
+                    throw new IllegalArgumentException("Corrupt event log at byte " + start);
+                }
+                lastCycle = cycle;
+            }
+        } catch (BufferUnderflowException e) {
+            // The recording was cut off, so the log ends with the last complete record, whose cycle is already set
+        }
+    }
+
+    /**
+     * Moves past the cell runs of a keyframe.
+     */
+    private void skipKeyframe() {
+        long cells = (long) rows * columns;
+        for (long covered = 0; covered < cells; ) {
+            covered += VarInt.read(bytes) >>> 2;
+        }
+    }
+
+    /**
+     * Moves past a list of cell indices.
+     */
+    private void skipIndices() {
+        long count = VarInt.read(bytes);
+        for (long k = 0; k < count; k++) {
+            VarInt.read(bytes);
+        }
+    }
+
+    /**
+     * Returns the number of rows of the recorded forest.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the recorded forest.
+     *
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of simulation cycles between two keyframes.
+     *
+     * @return the keyframe interval
+     */
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * Returns the simulation cycle the recording started at, which is 1 for a fire that was just started.
+     *
+     * @return the first recorded cycle
+     */
+    public int getFirstCycle() {
+        return keyframeCycles[0];
+    }
+
+    /**
+     * Returns the last recorded simulation cycle, which is the cycle the fire went out at for a complete recording.
+     *
+     * @return the last recorded cycle
+     */
+    public int getLastCycle() {
+        return lastCycle;
+    }
+
+    /**
+     * Returns the size of the log.
+     *
+     * @return the number of bytes in the log
+     */
+    public int getSize() {
+        return bytes.limit();
+    }
+
+    /**
+     * Returns the cycle of the last keyframe taken at or before the specified cycle.
+     *
+     * @param cycle a cycle between the first and the last recorded cycle
+     * @return the cycle of the keyframe
+     */
+    int findKeyframeCycle(int cycle) {
+        return keyframeCycles[findKeyframe(cycle)];
+    }
+
+    /**
+     * Returns the index of the last keyframe taken at or before the specified cycle.
+     *
+     * @param cycle a cycle between the first and the last recorded cycle
+     * @return the index of the keyframe
+     */
+    private int findKeyframe(int cycle) {
+        int found = Arrays.binarySearch(keyframeCycles, 0, keyframeCount, cycle);
+        // Without an exact match, take the keyframe before the insertion point
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Sets the cells to their states at the last keyframe taken at or before the specified cycle.
+     *
+     * @param cycle  a cycle between the first and the last recorded cycle
+     * @param states the state of every cell in row-major order, as the ordinal of its state
+     */
+    void readKeyframe(int cycle, byte[] states) {
+        ByteBuffer in = bytes.duplicate().position(keyframePositions[findKeyframe(cycle)]);
+        int index = 0;
+        while (index < states.length) {
+            long run = VarInt.read(in);
+            int end = index + (int) (run >>> 2);
+            Arrays.fill(states, index, end, (byte) (run & 3));
+            index = end;
+        }
+    }
+
+    /**
+     * Applies the cells that caught fire and the cells that were scorched during the cycle after the specified one.
+     *
+     * @param cycle   a cycle from the first recorded cycle up to, but not including, the last one
+     * @param states  the state of every cell in row-major order, as the ordinal of its state
+     * @param changes the list the changed cells are added to, or null if they are not needed
+     */
+    void applyTick(int cycle, byte[] states, CellChanges changes) {
+        // Skip the tag
+        ByteBuffer in = bytes.duplicate().position(tickPositions[cycle - getFirstCycle()] + 1);
+        applyIndices(in, states, (byte) ForestCell.State.BURNING.ordinal(), changes);
+        applyIndices(in, states, (byte) ForestCell.State.SCORCHED.ordinal(), changes);
+    }
+
+    /**
+     * Sets a list of cells to the same state.
+     *
+     * @param in      the log, positioned at the length of the list
+     * @param states  the state of every cell in row-major order, as the ordinal of its state
+     * @param state   the ordinal of the state the cells are set to
+     * @param changes the list the changed cells are added to, or null if they are not needed
+     */
+    private static void applyIndices(ByteBuffer in, byte[] states, byte state, CellChanges changes) {
+        long count = VarInt.read(in);
+        int index = 0;
+        for (long k = 0; k < count; k++) {
+            index += (int) VarInt.read(in);
+            states[index] = state;
+            if (changes != null) {
+                changes.add(index);
+            }
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package org.example.program4.replay;
+
+import org.example.program4.engine.CellChanges;
+import org.example.program4.engine.ForestCell;
+import org.example.program4.engine.SimulationEngine;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Records a run of a simulation engine as a compact binary event log that can be replayed with {@link ReplayForest}.
+ * <p>
+ * Each simulation cycle is stored as the cells that caught fire and the cells that were scorched during it.
+ * The cell indices are sorted and only the gap to the previous index is written, as a variable-length integer,
+ * so the neighbouring cells along the fire front mostly take one byte each. Every few cycles a keyframe with the
+ * state of every cell is written, run-length encoded, so a replay can seek without applying every cycle from the start.
+ * See {@link EventLog} for the layout of the log.
+ */
+public class EventLogWriter implements Closeable {
+
+    /**
+     * The number of simulation cycles between two keyframes unless another interval is given.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+
+    /**
+     * The stream the log is written to.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * The number of simulation cycles between two keyframes.
+     */
+    private final int keyframeInterval;
+
+    /**
+     * The number of columns of the recorded forest.
+     */
+    private int columns;
+
+    /**
+     * The state of every cell at the last recorded cycle, or null if the engine keeps track of its changed cells.
+     * Only used for engines that do not report their changed cells.
+     */
+    private byte[] previousStates;
+
+    /**
+     * The indices of the cells that caught fire during the cycle being recorded.
+     */
+    private long[] ignitions = new long[16];
+
+    /**
+     * The number of cells that caught fire during the cycle being recorded.
+     */
+    private int ignitionCount;
+
+    /**
+     * The indices of the cells that were scorched during the cycle being recorded.
+     */
+    private long[] scorches = new long[16];
+
+    /**
+     * The number of cells that were scorched during the cycle being recorded.
+     */
+    private int scorchCount;
+
+    /**
+     * The last recorded simulation cycle, or 0 if the recording has not been started.
+     */
+    private int cycle;
+
+    /**
+     * Whether the log has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructs a writer that writes the log to the specified stream.
+     *
+     * @param out              the stream the log is written to
+     * @param keyframeInterval the number of simulation cycles between two keyframes
+     */
+    public EventLogWriter(OutputStream out, int keyframeInterval) {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("The keyframe interval must be positive: " + keyframeInterval);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Creates a writer that writes the log to the specified file, replacing any existing file.
+     *
+     * @param file             the file the log is written to
+     * @param keyframeInterval the number of simulation cycles between two keyframes
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    public static EventLogWriter create(Path file, int keyframeInterval) throws IOException {
+        return new EventLogWriter(Files.newOutputStream(file), keyframeInterval);
+    }
+
+    /**
+     * Starts the recording with the header of the log and a keyframe of the forest.
+     * The fire must already have been started in the engine.
+     *
+     * @param engine the engine that is recorded
+     * @throws IOException if the log cannot be written
+     */
+    public void start(SimulationEngine engine) throws IOException {
+        if (cycle != 0) {
+            throw new IllegalStateException("The recording has already been started");
+        }
+        columns = engine.getColumns();
+        long cellCount = (long) engine.getRows() * columns;
+        if (engine.getChangedCells() == null) {
+            if (cellCount > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Engines that do not report their changed cells can only be recorded up to "
+                        + Integer.MAX_VALUE + " cells");
+            }
+            previousStates = new byte[(int) cellCount];
+        }
+        out.writeInt(EventLog.MAGIC);
+        out.writeByte(EventLog.VERSION);
+        VarInt.write(out, engine.getRows());
+        VarInt.write(out, columns);
+        VarInt.write(out, keyframeInterval);
+        cycle = engine.getSimulationCycles();
+        writeKeyframe(engine);
+    }
+
+    /**
+     * Records the simulation cycle the engine has just run.
+     *
+     * @param engine the engine that is recorded
+     * @throws IOException if the log cannot be written
+     */
+    public void recordStep(SimulationEngine engine) throws IOException {
+        if (cycle == 0) {
+            throw new IllegalStateException("The recording has not been started");
+        }
+        if (engine.getSimulationCycles() != cycle + 1) {
+            throw new IllegalStateException("Expected cycle " + (cycle + 1) + " but the engine is at cycle " + engine.getSimulationCycles());
+        }
+        collectEvents(engine);
+        out.writeByte(EventLog.TAG_TICK);
+        writeIndices(ignitions, ignitionCount);
+        writeIndices(scorches, scorchCount);
+        cycle++;
+        if (cycle % keyframeInterval == 0) {
+            writeKeyframe(engine);
+        }
+    }
+
+    /**
+     * Records every simulation cycle of the engine until the fire has gone out, then closes the log.
+     *
+     * @param engine the engine that is recorded, with the fire already started
+     * @return the number of simulation cycles it took for the fire to go out
+     * @throws IOException if the log cannot be written
+     */
+    public int recordToCompletion(SimulationEngine engine) throws IOException {
+        start(engine);
+        while (engine.step()) {
+            recordStep(engine);
+        }
+        recordStep(engine);
+        close();
+        return engine.getSimulationCycles();
+    }
+
+    /**
+     * Ends the log with the last recorded cycle and closes the stream. If the recording was never started,
+     * the stream is closed without ending the log. Closing the log again has no effect.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (cycle != 0) {
+            out.writeByte(EventLog.TAG_END);
+            VarInt.write(out, cycle);
+        }
+        out.close();
+    }
+
+    /**
+     * Sorts the cells that changed during the last cycle into ignitions and scorches.
+     *
+     * @param engine the engine that is recorded
+     */
+    private void collectEvents(SimulationEngine engine) {
+        ignitionCount = 0;
+        scorchCount = 0;
+        CellChanges changes = engine.getChangedCells();
+        if (changes != null) {
+            for (int k = 0; k < changes.size(); k++) {
+                addEvent(changes.getIndex(k), getState(engine, changes.getIndex(k)));
+            }
+        } else {
+            // Compare every cell with the last recorded cycle
+            for (int index = 0; index < previousStates.length; index++) {
+                byte state = (byte) getState(engine, index).ordinal();
+                if (state != previousStates[index]) {
+                    previousStates[index] = state;
+                    addEvent(index, ForestCell.State.values()[state]);
+                }
+            }
+        }
+        Arrays.sort(ignitions, 0, ignitionCount);
+        Arrays.sort(scorches, 0, scorchCount);
+    }
+
+    /**
+     * Adds a changed cell to the ignitions or the scorches of the cycle being recorded.
+     *
+     * @param index the index of the cell in row-major order
+     * @param state the state of the cell after the cycle
+     */
+    private void addEvent(long index, ForestCell.State state) {
+        if (state == ForestCell.State.BURNING) {
+            if (ignitionCount == ignitions.length) {
+                ignitions = Arrays.copyOf(ignitions, ignitionCount * 2);
+            }
+            ignitions[ignitionCount++] = index;
+        } else if (state == ForestCell.State.SCORCHED) {
+            if (scorchCount == scorches.length) {
+                scorches = Arrays.copyOf(scorches, scorchCount * 2);
+            }
+            scorches[scorchCount++] = index;
+        }
+    }
+
+    /**
+     * Writes a sorted list of cell indices as its length followed by the gaps between the indices.
+     *
+     * @param indices the sorted indices
+     * @param count   the number of indices
+     * @throws IOException if the log cannot be written
+     */
+    private void writeIndices(long[] indices, int count) throws IOException {
+        VarInt.write(out, count);
+        long previous = 0;
+        for (int k = 0; k < count; k++) {
+            VarInt.write(out, indices[k] - previous);
+            previous = indices[k];
+        }
+    }
+
+    /**
+     * Writes the state of every cell as runs of cells with the same state.
+     * Each run is one variable-length integer holding the length of the run and the state in its lowest 2 bits.
+     *
+     * @param engine the engine that is recorded
+     * @throws IOException if the log cannot be written
+     */
+    private void writeKeyframe(SimulationEngine engine) throws IOException {
+        out.writeByte(EventLog.TAG_KEYFRAME);
+        VarInt.write(out, cycle);
+        int rows = engine.getRows();
+        int runState = -1;
+        long runLength = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                int state = engine.getState(i, j).ordinal();
+                if (state != runState) {
+                    if (runLength > 0) {
+                        VarInt.write(out, runLength << 2 | runState);
+                    }
+                    runState = state;
+                    runLength = 0;
+                }
+                runLength++;
+            }
+        }
+        VarInt.write(out, runLength << 2 | runState);
+        if (previousStates != null) {
+            // Start comparing from this keyframe, which matters for the first keyframe
+            for (int index = 0; index < previousStates.length; index++) {
+                previousStates[index] = (byte) getState(engine, index).ordinal();
+            }
+        }
+    }
+
+    /**
+     * Returns the state of the cell at the specified index.
+     *
+     * @param engine the engine that is recorded
+     * @param index  the index of the cell in row-major order
+     * @return the state of the cell
+     */
+    private ForestCell.State getState(SimulationEngine engine, long index) {
+        return engine.getState((int) (index / columns), (int) (index % columns));
+    }
+}
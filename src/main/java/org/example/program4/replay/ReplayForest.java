@@ -0,0 +1,157 @@
+package org.example.program4.replay;
+
+import org.example.program4.engine.CellChanges;
+import org.example.program4.engine.ForestCell;
+import org.example.program4.engine.SimulationEngine;
+import org.example.program4.engine.SpreadKernel;
+
+/**
+ * Plays back a recorded run from an {@link EventLog} as a simulation engine, so it can be shown like a live run.
+ * <p>
+ * Stepping applies the cells that caught fire and the cells that were scorched during the next recorded cycle.
+ * {@link #seek} jumps to any recorded cycle by restoring the nearest keyframe at or before it and applying the
+ * cycles after the keyframe, so it never has to apply more cycles than the keyframe interval of the log.
+ * The fire cannot be started or changed, since the whole run is already recorded.
+ */
+public class ReplayForest implements SimulationEngine {
+
+    /**
+     * The states of the cell, by ordinal.
+     */
+    private static final ForestCell.State[] STATES = ForestCell.State.values();
+
+    /**
+     * The recorded run that is played back.
+     */
+    private final EventLog log;
+
+    /**
+     * The number of columns of the grid that represents the forest.
+     */
+    private final int columns;
+
+    /**
+     * The state of every cell in row-major order, as the ordinal of its state.
+     */
+    private final byte[] states;
+
+    /**
+     * The cells that changed during the last step.
+     */
+    private final CellChanges changes = new CellChanges();
+
+    /**
+     * Whether the changed cells describe the last step. They do not after a seek, which changes any number of cells.
+     */
+    private boolean changesValid;
+
+    /**
+     * The current simulation cycle.
+     */
+    private int simulationCycles;
+
+    /**
+     * Constructs a replay of the specified log, positioned at the first recorded cycle.
+     *
+     * @param log the recorded run
+     * @throws IllegalArgumentException if the recorded forest has too many cells to be replayed
+     */
+    public ReplayForest(EventLog log) {
+        long cellCount = (long) log.getRows() * log.getColumns();
+        if (cellCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Only forests with up to " + Integer.MAX_VALUE + " cells can be replayed: "
+                    + log.getRows() + " x " + log.getColumns());
+        }
+        this.log = log;
+        this.columns = log.getColumns();
+        this.states = new byte[(int) cellCount];
+        // Not seek, which a subclass could override before its own fields are set
+        jumpTo(log.getFirstCycle());
+    }
+
+    /**
+     * Jumps to the specified simulation cycle. Cycles outside the recording are clamped to the first or the last cycle.
+     *
+     * @param cycle the simulation cycle to jump to
+     */
+    public void seek(int cycle) {
+        jumpTo(cycle);
+    }
+
+    /**
+     * Restores the nearest keyframe at or before the specified simulation cycle and applies the cycles after it.
+     * Cycles outside the recording are clamped to the first or the last cycle.
+     *
+     * @param cycle the simulation cycle to jump to
+     */
+    private void jumpTo(int cycle) {
+        cycle = Math.max(log.getFirstCycle(), Math.min(log.getLastCycle(), cycle));
+        log.readKeyframe(cycle, states);
+        for (int c = log.findKeyframeCycle(cycle); c < cycle; c++) {
+            log.applyTick(c, states, null);
+        }
+        simulationCycles = cycle;
+        // Any number of cells changed, so the whole forest has to be repainted
+        changesValid = false;
+    }
+
+    /**
+     * Returns the recorded run that is played back.
+     *
+     * @return the event log
+     */
+    public EventLog getLog() {
+        return log;
+    }
+
+    @Override
+    public void setSpreadKernel(SpreadKernel kernel) {
+        throw new UnsupportedOperationException("The spread of a recorded fire cannot be changed");
+    }
+
+    @Override
+    public void startFire(int i, int j) {
+        throw new UnsupportedOperationException("A recorded fire cannot be started");
+    }
+
+    @Override
+    public boolean step() {
+        changes.clear();
+        changesValid = true;
+        if (simulationCycles < log.getLastCycle()) {
+            log.applyTick(simulationCycles, states, changes);
+            simulationCycles++;
+        }
+        return isStillBurning();
+    }
+
+    @Override
+    public boolean isStillBurning() {
+        return simulationCycles < log.getLastCycle();
+    }
+
+    @Override
+    public ForestCell.State getState(int i, int j) {
+        return STATES[states[i * columns + j]];
+    }
+
+    @Override
+    public CellChanges getChangedCells() {
+        return changesValid ? changes : null;
+    }
+
+    @Override
+    public int getRows() {
+        return log.getRows();
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int getSimulationCycles() {
+        return simulationCycles;
+    }
+}
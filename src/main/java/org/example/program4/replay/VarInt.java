@@ -0,0 +1,54 @@
+package org.example.program4.replay;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes non-negative numbers as variable-length integers. Each byte holds 7 bits of the number,
+ * lowest bits first, and its top bit is set if more bytes follow. Numbers below 128 take a single byte,
+ * which is what most gaps between sorted cell indices are.
+ */
+final class VarInt {
+
+    /**
+     * Not instantiable.
+     */
+    private VarInt() {
+    }
+
+    /**
+     * Writes a non-negative number.
+     *
+     * @param out   the stream to write to
+     * @param value the number, at least 0
+     * @throws IOException if the stream cannot be written
+     */
+    static void write(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads a number.
+     *
+     * @param in the buffer to read from, positioned at the first byte of the number
+     * @return the number
+     * @throws IllegalArgumentException if the number is longer than 64 bits
+     * @throws java.nio.BufferUnderflowException if the number runs past the end of the buffer
+     */
+    static long read(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt number before byte " + in.position());
+    }
+}
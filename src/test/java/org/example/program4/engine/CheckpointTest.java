@@ -0,0 +1,123 @@
+package org.example.program4.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a forest restored from a {@link Checkpoint} burns exactly like the forest that was saved.
+ */
+class CheckpointTest {
+
+    /**
+     * The number of rows of the forests.
+     */
+    private static final int ROWS = 40;
+
+    /**
+     * The number of columns of the forests.
+     */
+    private static final int COLUMNS = 50;
+
+    /**
+     * The directory the checkpoints are written to.
+     */
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoredPackedForestBurnsLikeTheSavedOne() throws IOException {
+        PackedForest saved = new PackedForest(ROWS, COLUMNS, 11);
+        assertRoundTrip(saved, new PackedForest(ROWS, COLUMNS, 11), Checkpoint.EngineKind.PACKED);
+    }
+
+    @Test
+    void restoredFrontierForestBurnsLikeTheSavedOne() throws IOException {
+        FrontierForest saved = new FrontierForest(ROWS, COLUMNS, 12);
+        assertRoundTrip(saved, new FrontierForest(ROWS, COLUMNS, 12), Checkpoint.EngineKind.FRONTIER);
+    }
+
+    @Test
+    void restoredMappedForestBurnsLikeTheSavedOne() throws IOException {
+        try (MappedForest saved = new MappedForest(ROWS, COLUMNS, 13);
+             MappedForest unsaved = new MappedForest(ROWS, COLUMNS, 13)) {
+            assertRoundTrip(saved, unsaved, Checkpoint.EngineKind.MAPPED);
+        }
+    }
+
+    @Test
+    void forestWithFuelMapIsRefused() {
+        FrontierForest forest = new FrontierForest(ROWS, COLUMNS, 14);
+        forest.setFuelMap(new FuelMap(ROWS, COLUMNS, new byte[ROWS * COLUMNS]));
+        forest.startFire(ROWS / 2, COLUMNS / 2);
+        assertThrows(IllegalArgumentException.class, () -> Checkpoint.write(forest, directory.resolve("fuel.ffck")));
+    }
+
+    @Test
+    void corruptHeaderIsRefused() throws IOException {
+        FrontierForest forest = new FrontierForest(ROWS, COLUMNS, 15);
+        forest.setSpreadParameters(0.6, Forest.WindDirection.EAST);
+        forest.startFire(ROWS / 2, COLUMNS / 2);
+        Path file = directory.resolve("valid.ffck");
+        Checkpoint.write(forest, file);
+        // The engine kind, the rows, the columns, the wind direction and the size of the frontier
+        int[][] corruptions = {{8, 99}, {8, -1}, {12, -4}, {16, 0}, {40, 4}, {40, -1}, {48, -1}};
+        for (int[] corruption : corruptions) {
+            byte[] bytes = Files.readAllBytes(file);
+            ByteBuffer.wrap(bytes).putInt(corruption[0], corruption[1]);
+            Path corrupt = directory.resolve("corrupt.ffck");
+            Files.write(corrupt, bytes);
+            assertThrows(IOException.class, () -> Checkpoint.read(corrupt), "offset " + corruption[0] + ", value " + corruption[1]);
+        }
+    }
+
+    /**
+     * Burns two identical forests for a few cycles, saves one of them and restores it, and then checks that the
+     * restored forest keeps burning like the one that was never saved.
+     *
+     * @param saved   the forest that is saved
+     * @param unsaved an identical forest that is never saved
+     * @param kind    the kind of engine the checkpoint should record
+     * @throws IOException if the checkpoint cannot be written or read
+     */
+    private void assertRoundTrip(SimulationEngine saved, SimulationEngine unsaved, Checkpoint.EngineKind kind) throws IOException {
+        for (SimulationEngine engine : new SimulationEngine[]{saved, unsaved}) {
+            engine.setSpreadParameters(0.6, Forest.WindDirection.EAST);
+            engine.startFire(ROWS / 2, COLUMNS / 2);
+            for (int cycle = 0; cycle < 8; cycle++) {
+                engine.step();
+            }
+        }
+        Path file = directory.resolve(kind + ".ffck");
+        Checkpoint.write(saved, file);
+        Checkpoint checkpoint = Checkpoint.read(file);
+        assertEquals(kind, checkpoint.getEngineKind());
+        assertEquals(unsaved.getSimulationCycles(), checkpoint.getSimulationCycles());
+
+        SimulationEngine restored = checkpoint.restore();
+        try {
+            assertArrayEquals(EngineEquivalenceTest.snapshot(unsaved), EngineEquivalenceTest.snapshot(restored));
+            boolean stillBurning = true;
+            while (stillBurning) {
+                stillBurning = unsaved.step();
+                assertEquals(stillBurning, restored.step());
+                assertEquals(unsaved.getSimulationCycles(), restored.getSimulationCycles());
+                assertArrayEquals(EngineEquivalenceTest.snapshot(unsaved), EngineEquivalenceTest.snapshot(restored),
+                        "cycle " + unsaved.getSimulationCycles());
+                assertEquals(unsaved.getBurningCount(), restored.getBurningCount());
+            }
+        } finally {
+            if (restored instanceof MappedForest mapped) {
+                mapped.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.program4.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that every engine that steps in whole cycles burns exactly like {@link Forest} for the same seed,
+ * which the engines promise since every random number is keyed on the seed, the cycle, the cell and the direction.
+ */
+class EngineEquivalenceTest {
+
+    /**
+     * The number of rows of the forests, not a multiple of 64 so the padding of the bitboard and the last band
+     * of the parallel forest are covered.
+     */
+    private static final int ROWS = 37;
+
+    /**
+     * The number of columns of the forests, more than a tile of the chunked forest.
+     */
+    private static final int COLUMNS = 71;
+
+    @Test
+    void everyEngineBurnsLikeForest() throws IOException {
+        for (long seed = 0; seed < 6; seed++) {
+            for (double probability : new double[]{0.3, 0.5, 0.8}) {
+                for (Forest.WindDirection windDirection : Forest.WindDirection.values()) {
+                    compare(seed, probability, windDirection);
+                }
+            }
+        }
+    }
+
+    @Test
+    void fullFuelBurnsLikeNoFuelMap() {
+        byte[] fuel = new byte[ROWS * COLUMNS];
+        Arrays.fill(fuel, (byte) FuelMap.FULL_FUEL);
+        FuelMap fuelMap = new FuelMap(ROWS, COLUMNS, fuel);
+        for (long seed = 0; seed < 6; seed++) {
+            Forest reference = startFire(new Forest(ROWS, COLUMNS, seed), null);
+            List<SimulationEngine> engines = fuelEngines(seed, fuelMap);
+            assertBurnLike(reference, engines, "full fuel with seed " + seed);
+        }
+    }
+
+    @Test
+    void cellsWithoutFuelNeverIgnite() {
+        for (long seed = 0; seed < 6; seed++) {
+            FuelMap fuelMap = randomFuelMap(seed);
+            for (SimulationEngine engine : fuelEngines(seed, fuelMap)) {
+                engine.runToCompletion();
+                for (int i = 0; i < ROWS; i++) {
+                    for (int j = 0; j < COLUMNS; j++) {
+                        if (fuelMap.getFuel(i, j) == 0) {
+                            assertEquals(ForestCell.State.UNTOUCHED, engine.getState(i, j),
+                                    engine.getClass().getSimpleName() + " with seed " + seed + " at " + i + ", " + j);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void fuelEnginesBurnLikeForestOnRandomFuel() {
+        for (long seed = 0; seed < 6; seed++) {
+            FuelMap fuelMap = randomFuelMap(seed);
+            Forest reference = startFire(new Forest(ROWS, COLUMNS, seed), fuelMap);
+            assertBurnLike(reference, fuelEngines(seed, fuelMap), "random fuel with seed " + seed);
+            assertTrue(reference.getSimulationCycles() > 1, "the fire should spread on the random fuel");
+        }
+    }
+
+    /**
+     * Creates a fuel map where about a quarter of the cells has no fuel and the rest has a random amount of fuel,
+     * except the center cell the fire is started in, which has full fuel.
+     *
+     * @param seed the seed of the random fuel
+     * @return the fuel map
+     */
+    private static FuelMap randomFuelMap(long seed) {
+        Random random = new Random(seed);
+        byte[] fuel = new byte[ROWS * COLUMNS];
+        for (int k = 0; k < fuel.length; k++) {
+            fuel[k] = (byte) (random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(FuelMap.FULL_FUEL));
+        }
+        fuel[ROWS / 2 * COLUMNS + COLUMNS / 2] = (byte) FuelMap.FULL_FUEL;
+        return new FuelMap(ROWS, COLUMNS, fuel);
+    }
+
+    /**
+     * Creates every engine besides {@link Forest} that supports fuel maps, with the fire started in the center.
+     *
+     * @param seed    the seed of the forests
+     * @param fuelMap the fuel of every cell
+     * @return the engines
+     */
+    private static List<SimulationEngine> fuelEngines(long seed, FuelMap fuelMap) {
+        return List.of(
+                startFire(new PackedForest(ROWS, COLUMNS, seed), fuelMap),
+                startFire(new FrontierForest(ROWS, COLUMNS, seed), fuelMap),
+                startFire(new ParallelForest(ROWS, COLUMNS, seed, ForkJoinPool.commonPool()), fuelMap));
+    }
+
+    /**
+     * Sets the fuel map of an engine and starts a fire in the center with a probability well above the critical one.
+     *
+     * @param engine  the engine
+     * @param fuelMap the fuel of every cell, or null for full fuel
+     * @param <E>     the type of the engine
+     * @return the engine
+     */
+    private static <E extends SimulationEngine> E startFire(E engine, FuelMap fuelMap) {
+        engine.setSpreadParameters(0.8, Forest.WindDirection.SOUTH);
+        if (fuelMap != null) {
+            engine.setFuelMap(fuelMap);
+        }
+        engine.startFire(ROWS / 2, COLUMNS / 2);
+        return engine;
+    }
+
+    /**
+     * Steps the reference and the engines until the fire goes out, checking after every cycle that the grids
+     * and the cycles of the engines match those of the reference.
+     *
+     * @param reference   the forest that gives the expected states
+     * @param engines     the engines to check
+     * @param description the description of the run, for the messages of failed checks
+     */
+    private static void assertBurnLike(Forest reference, List<SimulationEngine> engines, String description) {
+        boolean stillBurning = true;
+        while (stillBurning) {
+            stillBurning = reference.step();
+            byte[] expected = snapshot(reference);
+            for (SimulationEngine engine : engines) {
+                String name = engine.getClass().getSimpleName() + " with " + description + " at cycle " + reference.getSimulationCycles();
+                assertEquals(stillBurning, engine.step(), name);
+                assertEquals(reference.getSimulationCycles(), engine.getSimulationCycles(), name);
+                assertArrayEquals(expected, snapshot(engine), name);
+            }
+        }
+    }
+
+    /**
+     * Steps every engine with the same seed and spread parameters until the fire goes out, checking after every cycle
+     * that the grids, the cycles and the counts of the engines match those of {@link Forest}.
+     *
+     * @param seed          the seed of the forests
+     * @param probability   the initial probability of the fire spreading
+     * @param windDirection the direction of the wind
+     * @throws IOException if the file of the mapped forest cannot be created
+     */
+    private static void compare(long seed, double probability, Forest.WindDirection windDirection) throws IOException {
+        Forest reference = new Forest(ROWS, COLUMNS, seed);
+        try (MappedForest mapped = new MappedForest(ROWS, COLUMNS, seed)) {
+            List<SimulationEngine> engines = List.of(
+                    new PackedForest(ROWS, COLUMNS, seed),
+                    new FrontierForest(ROWS, COLUMNS, seed),
+                    new BitboardForest(ROWS, COLUMNS, seed),
+                    new ParallelForest(ROWS, COLUMNS, seed, ForkJoinPool.commonPool()),
+                    new ChunkedForest(ROWS, COLUMNS, seed),
+                    mapped);
+            reference.setSpreadParameters(probability, windDirection);
+            reference.startFire(ROWS / 2, COLUMNS / 2);
+            for (SimulationEngine engine : engines) {
+                engine.setSpreadParameters(probability, windDirection);
+                engine.startFire(ROWS / 2, COLUMNS / 2);
+            }
+
+            boolean stillBurning = true;
+            while (stillBurning) {
+                stillBurning = reference.step();
+                byte[] expected = snapshot(reference);
+                for (SimulationEngine engine : engines) {
+                    String name = engine.getClass().getSimpleName() + " with seed " + seed + ", probability " + probability
+                            + " and wind " + windDirection + " at cycle " + reference.getSimulationCycles();
+                    assertEquals(stillBurning, engine.step(), name);
+                    assertEquals(reference.getSimulationCycles(), engine.getSimulationCycles(), name);
+                    assertArrayEquals(expected, snapshot(engine), name);
+                    for (ForestCell.State state : ForestCell.State.values()) {
+                        long count = engine.getStateCount(state);
+                        if (count >= 0) {
+                            assertEquals(reference.getStateCount(state), count, name + ", " + state + " cells");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the state of every cell of an engine in row-major order.
+     *
+     * @param engine the engine
+     * @return the ordinals of the states of the cells
+     */
+    static byte[] snapshot(SimulationEngine engine) {
+        byte[] states = new byte[engine.getRows() * engine.getColumns()];
+        for (int i = 0; i < engine.getRows(); i++) {
+            for (int j = 0; j < engine.getColumns(); j++) {
+                states[i * engine.getColumns() + j] = (byte) engine.getState(i, j).ordinal();
+            }
+        }
+        return states;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.program4.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that an {@link EventForest} keeps its counts in step with its cells and only goes out once no cell is burning.
+ */
+class EventForestTest {
+
+    /**
+     * The number of rows of the forests.
+     */
+    private static final int ROWS = 31;
+
+    /**
+     * The number of columns of the forests.
+     */
+    private static final int COLUMNS = 27;
+
+    @Test
+    void countsMatchTheCellsUntilTheFireGoesOut() {
+        for (long seed = 0; seed < 8; seed++) {
+            for (double probability : new double[]{0.3, 0.6, 1.0}) {
+                EventForest forest = new EventForest(ROWS, COLUMNS, seed);
+                forest.setSpreadParameters(probability, Forest.WindDirection.WEST);
+                forest.startFire(ROWS / 2, COLUMNS / 2);
+                assertCountsMatch(forest);
+                while (forest.step()) {
+                    assertCountsMatch(forest);
+                }
+                assertCountsMatch(forest);
+                // Every spread is scheduled before the cell it comes from is scorched, so no event is left over
+                assertEquals(0, forest.getPendingEvents());
+            }
+        }
+    }
+
+    @Test
+    void startingTheFireTwiceInTheSameCellChangesNothing() {
+        EventForest once = new EventForest(11, 11, 5);
+        EventForest twice = new EventForest(11, 11, 5);
+        once.setSpreadParameters(0.5, Forest.WindDirection.NORTH);
+        twice.setSpreadParameters(0.5, Forest.WindDirection.NORTH);
+        once.startFire(5, 5);
+        twice.startFire(5, 5);
+        twice.startFire(5, 5);
+        assertEquals(1, twice.getStateCount(ForestCell.State.BURNING));
+        assertEquals(once.getPendingEvents(), twice.getPendingEvents());
+
+        once.runToCompletion();
+        twice.runToCompletion();
+        assertCountsMatch(twice);
+        assertEquals(0, twice.getStateCount(ForestCell.State.BURNING));
+        assertEquals(once.getSimulationCycles(), twice.getSimulationCycles());
+        assertArrayEquals(EngineEquivalenceTest.snapshot(once), EngineEquivalenceTest.snapshot(twice));
+    }
+
+    @Test
+    void fireGoesOutAtProbabilityZero() {
+        EventForest forest = new EventForest(ROWS, COLUMNS, 3);
+        forest.setSpreadParameters(0, Forest.WindDirection.NORTH);
+        forest.startFire(ROWS / 2, COLUMNS / 2);
+        assertTrue(forest.isStillBurning());
+        // The wind still gives the fire a probability of 0.1 of spreading north
+        forest.runToCompletion();
+        assertFalse(forest.isStillBurning());
+        assertEquals(0, forest.getPendingEvents());
+        assertCountsMatch(forest);
+    }
+
+    /**
+     * Checks that the counts of the forest match its cells, and that the forest is burning exactly when a cell is.
+     *
+     * @param forest the forest
+     */
+    private static void assertCountsMatch(EventForest forest) {
+        long[] counts = new long[ForestCell.State.values().length];
+        for (int i = 0; i < forest.getRows(); i++) {
+            for (int j = 0; j < forest.getColumns(); j++) {
+                counts[forest.getState(i, j).ordinal()]++;
+            }
+        }
+        String cycle = "cycle " + forest.getSimulationCycles();
+        for (ForestCell.State state : ForestCell.State.values()) {
+            assertEquals(counts[state.ordinal()], forest.getStateCount(state), cycle + ", " + state + " cells");
+        }
+        assertEquals(counts[ForestCell.State.BURNING.ordinal()] > 0, forest.isStillBurning(), cycle);
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.program4.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a {@link FuelMap} is read from PGM images and its own format, and that broken files are refused.
+ */
+class FuelMapTest {
+
+    /**
+     * The directory the maps are written to.
+     */
+    @TempDir
+    Path directory;
+
+    @Test
+    void pgmImageIsScaledToFullFuel() throws IOException {
+        Path file = directory.resolve("map.pgm");
+        byte[] header = "P5\n# fuel\n3 2\n100\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] pixels = {0, 50, 100, 100, 25, 0};
+        byte[] bytes = new byte[header.length + pixels.length];
+        System.arraycopy(header, 0, bytes, 0, header.length);
+        System.arraycopy(pixels, 0, bytes, header.length, pixels.length);
+        Files.write(file, bytes);
+
+        FuelMap fuelMap = FuelMap.load(file);
+        assertEquals(2, fuelMap.getRows());
+        assertEquals(3, fuelMap.getColumns());
+        assertEquals(0, fuelMap.getFuel(0, 0));
+        assertEquals(128, fuelMap.getFuel(0, 1));
+        assertEquals(FuelMap.FULL_FUEL, fuelMap.getFuel(1, 0));
+
+        Path saved = directory.resolve("map.fuel");
+        fuelMap.save(saved);
+        FuelMap loaded = FuelMap.load(saved);
+        for (int i = 0; i < fuelMap.getRows(); i++) {
+            for (int j = 0; j < fuelMap.getColumns(); j++) {
+                assertEquals(fuelMap.getFuel(i, j), loaded.getFuel(i, j));
+            }
+        }
+    }
+
+    @Test
+    void brokenPgmImagesAreRefused() throws IOException {
+        for (String image : new String[]{"P5 2 2 255", "P5 2 2", "P5 2 2 65535\n", "P5 2 2 255\n\u0001\u0002"}) {
+            Path file = directory.resolve("broken.pgm");
+            Files.write(file, image.getBytes(StandardCharsets.ISO_8859_1));
+            assertThrows(IOException.class, () -> FuelMap.load(file), image);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.program4.replay;
+
+import org.example.program4.engine.Forest;
+import org.example.program4.engine.FrontierForest;
+import org.example.program4.engine.SimulationEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that a run recorded by an {@link EventLogWriter} is played back by a {@link ReplayForest} exactly as it burned,
+ * both step by step and when seeking to any cycle.
+ */
+class ReplayForestTest {
+
+    /**
+     * The number of rows of the forests.
+     */
+    private static final int ROWS = 45;
+
+    /**
+     * The number of columns of the forests.
+     */
+    private static final int COLUMNS = 39;
+
+    /**
+     * The directory the logs are written to.
+     */
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayOfFrontierForestMatchesTheRun() throws IOException {
+        assertReplayMatches(new FrontierForest(ROWS, COLUMNS, 21), new FrontierForest(ROWS, COLUMNS, 21));
+    }
+
+    @Test
+    void replayOfForestWithoutChangedCellsMatchesTheRun() throws IOException {
+        // Forest does not report its changed cells, so the writer compares every cell with the last cycle
+        assertReplayMatches(new Forest(ROWS, COLUMNS, 22), new Forest(ROWS, COLUMNS, 22));
+    }
+
+    @Test
+    void closingTheLogAgainChangesNothing() throws IOException {
+        Path file = directory.resolve("closed.ffel");
+        SimulationEngine engine = startFire(new FrontierForest(ROWS, COLUMNS, 23));
+        try (EventLogWriter writer = EventLogWriter.create(file, 8)) {
+            writer.recordToCompletion(engine);
+            long size = Files.size(file);
+            writer.close();
+            assertEquals(size, Files.size(file));
+        }
+        assertEquals(engine.getSimulationCycles(), EventLog.read(file).getLastCycle());
+    }
+
+    /**
+     * Records a run of one forest and checks the replay against the states of an identical forest at every cycle.
+     *
+     * @param recorded the forest whose run is recorded
+     * @param expected an identical forest that gives the states the replay should show
+     * @throws IOException if the log cannot be written or read
+     */
+    private void assertReplayMatches(SimulationEngine recorded, SimulationEngine expected) throws IOException {
+        Path file = directory.resolve(recorded.getClass().getSimpleName() + ".ffel");
+        try (EventLogWriter writer = EventLogWriter.create(file, 8)) {
+            writer.recordToCompletion(startFire(recorded));
+        }
+        List<byte[]> states = new ArrayList<>();
+        startFire(expected);
+        states.add(snapshot(expected));
+        while (expected.step()) {
+            states.add(snapshot(expected));
+        }
+        states.add(snapshot(expected));
+
+        ReplayForest replay = new ReplayForest(EventLog.read(file));
+        assertEquals(1, replay.getSimulationCycles());
+        assertArrayEquals(states.get(0), snapshot(replay));
+        while (replay.isStillBurning()) {
+            replay.step();
+            assertArrayEquals(states.get(replay.getSimulationCycles() - 1), snapshot(replay), "cycle " + replay.getSimulationCycles());
+        }
+        assertEquals(expected.getSimulationCycles(), replay.getSimulationCycles());
+        assertFalse(replay.step());
+
+        // Seek backwards through every cycle, across the keyframes
+        for (int cycle = replay.getSimulationCycles(); cycle >= 1; cycle--) {
+            replay.seek(cycle);
+            assertEquals(cycle, replay.getSimulationCycles());
+            assertArrayEquals(states.get(cycle - 1), snapshot(replay), "seek to cycle " + cycle);
+        }
+    }
+
+    /**
+     * Starts a fire in the center of a forest with a probability well above the critical probability.
+     *
+     * @param engine the forest
+     * @return the forest
+     */
+    private static SimulationEngine startFire(SimulationEngine engine) {
+        engine.setSpreadParameters(0.6, Forest.WindDirection.SOUTH);
+        engine.startFire(ROWS / 2, COLUMNS / 2);
+        return engine;
+    }
+
+    /**
+     * Returns the state of every cell of an engine in row-major order.
+     *
+     * @param engine the engine
+     * @return the ordinals of the states of the cells
+     */
+    private static byte[] snapshot(SimulationEngine engine) {
+        byte[] states = new byte[engine.getRows() * engine.getColumns()];
+        for (int i = 0; i < engine.getRows(); i++) {
+            for (int j = 0; j < engine.getColumns(); j++) {
+                states[i * engine.getColumns() + j] = (byte) engine.getState(i, j).ordinal();
+            }
+        }
+        return states;
+    }
+}